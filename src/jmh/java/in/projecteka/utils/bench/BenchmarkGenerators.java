@@ -0,0 +1,50 @@
+package in.projecteka.utils.bench;
+
+import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.data.DiagnosticReportGenerator;
+import in.projecteka.utils.data.DischargeSummaryGenerator;
+import in.projecteka.utils.data.HealthDocumentRecordGenerator;
+import in.projecteka.utils.data.ImmunizationGenerator;
+import in.projecteka.utils.data.OPConsultationGenerator;
+import in.projecteka.utils.data.PrescriptionGenerator;
+import in.projecteka.utils.data.WellnessRecordGenerator;
+import in.projecteka.utils.hcx.HcxCoverageEligibilityRequestGenerator;
+import in.projecteka.utils.hcx.HcxCoverageEligibilityResponseGenerator;
+
+import java.util.Date;
+
+/**
+ * Bundle generators by document type, as accepted by -Dtype.
+ */
+class BenchmarkGenerators {
+
+    static BundleGenerator create(String type) throws Exception {
+        BundleGenerator generator;
+        switch (type) {
+            case "PR": generator = new PrescriptionGenerator(); break;
+            case "DR": generator = new DiagnosticReportGenerator(); break;
+            case "OP": generator = new OPConsultationGenerator(); break;
+            case "DS": generator = new DischargeSummaryGenerator(); break;
+            case "IR": generator = new ImmunizationGenerator(); break;
+            case "HD": generator = new HealthDocumentRecordGenerator(); break;
+            case "WR": generator = new WellnessRecordGenerator(); break;
+            case "CEREQ": generator = new HcxCoverageEligibilityRequestGenerator(); break;
+            case "CERES": generator = new HcxCoverageEligibilityResponseGenerator(); break;
+            default: throw new RuntimeException("Unknown document type: " + type);
+        }
+        generator.init();
+        return generator;
+    }
+
+    static DocRequest request(String type) {
+        return DocRequest.builder()
+                .type(type)
+                .patientName("navjot")
+                .provName("max")
+                .fromDate(new Date())
+                .number(1)
+                .parallelism(1)
+                .build();
+    }
+}
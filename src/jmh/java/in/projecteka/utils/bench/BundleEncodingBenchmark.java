@@ -0,0 +1,56 @@
+package in.projecteka.utils.bench;
+
+import in.projecteka.utils.common.FhirRuntime;
+import in.projecteka.utils.common.RandomSource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Json encoding of a representative bundle of each document type, as a String (the old file path)
+ * and straight into a writer (the path the sinks take now).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BundleEncodingBenchmark {
+    @Param({"PR", "DR", "OP", "DS", "IR", "HD", "WR", "CEREQ", "CERES"})
+    private String type;
+
+    private Bundle bundle;
+
+    @Setup
+    public void setup() throws Exception {
+        //the same bundle on every run
+        RandomSource.setSeed(42L);
+        RandomSource.beginDocument(0);
+        bundle = BenchmarkGenerators.create(type).createBundle(BenchmarkGenerators.request(type), new Date(0));
+    }
+
+    @Benchmark
+    public String encodeToString() {
+        return FhirRuntime.jsonParser().encodeResourceToString(bundle);
+    }
+
+    @Benchmark
+    public void encodeToWriter() throws IOException {
+        FhirRuntime.jsonParser().encodeResourceToWriter(bundle, Writer.nullWriter());
+    }
+}
@@ -0,0 +1,49 @@
+package in.projecteka.utils.bench;
+
+import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.common.BundleGenerator;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a single document bundle (no encoding, no IO) for every document type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BundleGenerationBenchmark {
+    @Param({"PR", "DR", "OP", "DS", "IR", "HD", "WR", "CEREQ", "CERES"})
+    private String type;
+
+    private BundleGenerator generator;
+    private DocRequest request;
+    private Date date;
+
+    @Setup
+    public void setup() throws Exception {
+        generator = BenchmarkGenerators.create(type);
+        request = BenchmarkGenerators.request(type);
+        date = new Date();
+    }
+
+    @Benchmark
+    public Bundle createBundle() throws Exception {
+        return generator.createBundle(request, date);
+    }
+}
@@ -0,0 +1,32 @@
+package in.projecteka.utils.bench;
+
+import in.projecteka.utils.common.FhirRuntime;
+import in.projecteka.utils.output.OutputSink;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Encodes resources like the real sinks do, but throws the bytes away.
+ */
+class DiscardingSink implements OutputSink {
+
+    @Override
+    public void write(String name, IBaseResource resource) throws Exception {
+        FhirRuntime.jsonParser().encodeResourceToWriter(resource, Writer.nullWriter());
+    }
+
+    @Override
+    public void writeEncoded(String name, byte[] json) {
+    }
+
+    @Override
+    public OutputStream openDocument(String name) {
+        return OutputStream.nullOutputStream();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,58 @@
+package in.projecteka.utils.bench;
+
+import in.projecteka.utils.common.FhirRuntime;
+import in.projecteka.utils.common.ResourceTemplates;
+import in.projecteka.utils.data.model.Obs;
+import org.hl7.fhir.r4.model.Observation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing an observation fixture on every use vs. copying the cached prototype.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceTemplateBenchmark {
+    private String physicalObs;
+    private String vitalSignsObs;
+
+    @Setup
+    public void setup() {
+        physicalObs = Obs.getPhysicalObsResString();
+        vitalSignsObs = Obs.getVitalSignsObsResString();
+    }
+
+    @Benchmark
+    public Observation parsePhysicalObs() {
+        return FhirRuntime.jsonParser().parseResource(Observation.class, physicalObs);
+    }
+
+    @Benchmark
+    public Observation copyPhysicalObs() {
+        return ResourceTemplates.copyOf(Observation.class, physicalObs);
+    }
+
+    @Benchmark
+    public Observation parseVitalSignsObs() {
+        return FhirRuntime.jsonParser().parseResource(Observation.class, vitalSignsObs);
+    }
+
+    @Benchmark
+    public Observation copyVitalSignsObs() {
+        return ResourceTemplates.copyOf(Observation.class, vitalSignsObs);
+    }
+}
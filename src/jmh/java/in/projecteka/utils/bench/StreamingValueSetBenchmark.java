@@ -0,0 +1,83 @@
+package in.projecteka.utils.bench;
+
+import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.hcx.HcxValueSet;
+import in.projecteka.utils.output.DirectorySink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Streaming conversion of multi-million code value sets. Runs with a small heap on purpose:
+ * the in-memory conversion does not fit into it at these sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx128m")
+public class StreamingValueSetBenchmark {
+    @Param({"2000000", "5000000"})
+    private int codes;
+
+    private Path directory;
+    private HcxValueSet generator;
+    private DocRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("hcx-vs-stream-bench");
+        Path csvPath = directory.resolve("codes.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csvPath, StandardCharsets.UTF_8)) {
+            writer.write("ValueSet,,\n");
+            writer.write("Name,BenchmarkCodes\n");
+            writer.write("Description,Generated codes for benchmarking\n");
+            writer.write("Url,http://hcxprotocol.io/ValueSet/BenchmarkCodes\n");
+            writer.write("Code,Display\n");
+            for (int i = 0; i < codes; i++) {
+                writer.write(String.format("CODE-%07d,Display text for code %d\n", i, i));
+            }
+        }
+        generator = new HcxValueSet();
+        generator.init();
+        request = DocRequest.builder()
+                .type("VS")
+                .fromDate(new Date())
+                .csvPath(csvPath)
+                .outPath(directory)
+                .streaming(true)
+                .sink(new DirectorySink(directory))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void convert() throws Exception {
+        generator.execute(request);
+    }
+}
@@ -0,0 +1,51 @@
+package in.projecteka.utils.bench;
+
+import in.projecteka.utils.common.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers called several times for every generated document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UtilsBenchmark {
+    private Date date;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        date = new Date();
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return Utils.formatDate(date, "yyyyMMdd");
+    }
+
+    @Benchmark
+    public Date getNextDate() {
+        index = (index + 1) & 1023;
+        return Utils.getNextDate(date, index);
+    }
+
+    @Benchmark
+    public int randomInt() {
+        return Utils.randomInt(0, 100);
+    }
+}
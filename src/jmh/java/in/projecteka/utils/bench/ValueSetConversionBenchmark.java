@@ -0,0 +1,74 @@
+package in.projecteka.utils.bench;
+
+import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.hcx.HcxValueSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting a value set CSV with the given number of codes into an encoded ValueSet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ValueSetConversionBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int codes;
+
+    private Path csvPath;
+    private HcxValueSet generator;
+    private DocRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        csvPath = Files.createTempFile("hcx-vs-bench", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csvPath, StandardCharsets.UTF_8)) {
+            writer.write("ValueSet,,\n");
+            writer.write("Name,BenchmarkCodes\n");
+            writer.write("Description,Generated codes for benchmarking\n");
+            writer.write("Url,http://hcxprotocol.io/ValueSet/BenchmarkCodes\n");
+            writer.write("Code,Display\n");
+            for (int i = 0; i < codes; i++) {
+                writer.write(String.format("CODE-%07d,Display text for code %d\n", i, i));
+            }
+        }
+        generator = new HcxValueSet();
+        generator.init();
+        request = DocRequest.builder()
+                .type("VS")
+                .fromDate(new Date())
+                .csvPath(csvPath)
+                .sink(new DiscardingSink())
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(csvPath);
+    }
+
+    @Benchmark
+    public void convert() throws Exception {
+        generator.execute(request);
+    }
+}
@@ -0,0 +1,85 @@
+package in.projecteka.utils.bench;
+
+import in.projecteka.utils.hcx.ValueSetIndex;
+import in.projecteka.utils.hcx.ValueSetSnapshot;
+import org.hl7.fhir.r4.model.Coding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating codings against an index of the given number of codes, half of the lookups being misses.
+ * The index is either built on the heap or mapped from a snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ValueSetIndexBenchmark {
+    static final String SYSTEM = "http://hcxprotocol.io/ValueSet/BenchmarkCodes";
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000000"})
+    private int codes;
+
+    @Param({"heap", "mapped"})
+    private String storage;
+
+    private ValueSetIndex index;
+    private String[] lookups;
+    private int next = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        ValueSetIndex.Builder builder = ValueSetIndex.builder();
+        for (int i = 0; i < codes; i++) {
+            builder.add(SYSTEM, code(i), "Display text for code " + i);
+        }
+        index = builder.build();
+        if ("mapped".equals(storage)) {
+            Path snapshot = Files.createTempFile("hcx-vs-index", ".vsidx");
+            snapshot.toFile().deleteOnExit();
+            ValueSetSnapshot.write(index, snapshot);
+            index = ValueSetSnapshot.map(snapshot);
+        }
+        lookups = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            //odd lookups are not in the index
+            lookups[i] = i % 2 == 0 ? code((int) ((i * 7919L) % codes)) : code(codes + i);
+        }
+    }
+
+    static String code(int i) {
+        return String.format("CODE-%07d", i);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return index.contains(SYSTEM, lookups[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public String lookupDisplay() {
+        return index.lookupDisplay(SYSTEM, lookups[next++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public List<Coding> findByPrefix() {
+        return index.findByPrefix(SYSTEM, "CODE-00012", 10);
+    }
+}
@@ -1,5 +1,12 @@
 package in.projecteka.utils;
 
+import in.projecteka.utils.cohort.CohortGenerator;
+import in.projecteka.utils.common.AttachmentPayloads;
+import in.projecteka.utils.common.Dates;
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.common.OrganizationRegistry;
+import in.projecteka.utils.common.RandomSource;
+import in.projecteka.utils.common.ReferenceCatalogs;
 import in.projecteka.utils.data.DiagnosticReportGenerator;
 import in.projecteka.utils.data.DischargeSummaryGenerator;
 import in.projecteka.utils.common.DocumentGenerator;
@@ -9,13 +16,26 @@ import in.projecteka.utils.data.OPConsultationGenerator;
 import in.projecteka.utils.data.PrescriptionGenerator;
 import in.projecteka.utils.common.Utils;
 import in.projecteka.utils.data.WellnessRecordGenerator;
+import in.projecteka.utils.hcx.HcxCoverageEligibilityPairGenerator;
 import in.projecteka.utils.hcx.HcxCoverageEligibilityRequestGenerator;
 import in.projecteka.utils.hcx.HcxCoverageEligibilityResponseGenerator;
 import in.projecteka.utils.hcx.HcxValueSet;
+import in.projecteka.utils.load.LoadDriver;
+import in.projecteka.utils.load.LoadProfile;
+import in.projecteka.utils.load.MockHcxGateway;
+import in.projecteka.utils.metrics.MetricsExporter;
+import in.projecteka.utils.metrics.Progress;
+import in.projecteka.utils.output.OrderedSink;
+import in.projecteka.utils.output.OutputSink;
+import in.projecteka.utils.output.OutputSinks;
+import in.projecteka.utils.output.PipelinedSink;
+import in.projecteka.utils.server.GenerationServer;
 
+import java.net.URI;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
@@ -34,35 +54,190 @@ public class Application {
         put("WR", new WellnessRecordGenerator());
         put("CEREQ", new HcxCoverageEligibilityRequestGenerator());
         put("CERES", new HcxCoverageEligibilityResponseGenerator());
+        put("CEPAIR", new HcxCoverageEligibilityPairGenerator());
         put("VS", new HcxValueSet());
+        put("COHORT", new CohortGenerator());
     }};
-    private static final List<String> supportedTypes = Arrays.asList("PR", "DR", "OP", "DS", "IR", "HD", "WR", "CEREQ", "VS");
+    private static final String DEFAULT_MAX_FILE_SIZE_MB = "512";
+    private static final String DEFAULT_COMPRESSION = "-1";
+    private static final String DEFAULT_PORT = "8080";
+    private static final String DEFAULT_QUEUE_SIZE = "256";
+    private static final String DEFAULT_PAYLOADS = "100";
+    private static final String DEFAULT_PIPELINE_QUEUE = "1024";
+    private static final String DEFAULT_METRICS_INTERVAL = "10";
+    private static final List<String> supportedTypes = Arrays.asList("PR", "DR", "OP", "DS", "IR", "HD", "WR", "CEREQ", "CERES", "CEPAIR", "VS", "COHORT");
 
     public static void main(String[] args) throws Exception {
+        //dates are parsed and derived in this zone, so it has to be set first
+        checkOptional("zone").map(ZoneId::of).ifPresent(Dates::setZone);
+        if ("server".equalsIgnoreCase(checkOptional("mode").orElse(""))) {
+            startServer();
+            return;
+        }
+        if ("load".equalsIgnoreCase(checkOptional("mode").orElse(""))) {
+            startLoad();
+            return;
+        }
+        String output = checkOptional("output").orElse(OutputSinks.FILES);
+        if (OutputSinks.STDOUT.equalsIgnoreCase(output)) {
+            //stdout carries the documents, progress and other messages go to stderr
+            System.setOut(System.err);
+        }
         String type = getDocumentType(checkRequired("type"));
         if (Utils.isBlank(type)) {
-            System.out.println("Please provide Type, possible values: PR, DR, OP, DS, IR, HD, WR, CEREQ");
+            System.out.println("Please provide Type, possible values: PR, DR, OP, DS, IR, HD, WR, CEREQ, CERES, CEPAIR, VS, COHORT");
             return;
         }
+        Path outPath = Paths.get(checkOptional("out").orElseGet(Application::defaultOutputLocation));
+        Date fromDate = getFromDate(checkOptional("fromDate"));
+        OutputSink sink = createSink(output, outPath, type, fromDate);
         DocRequest request =
                 DocRequest.builder()
                         .type(type)
                         .patientId(checkOptional("id").orElse(null))
                         .patientName(checkOptional("name").orElseGet(Application::defaultPatient))
                         .provName(checkOptional("hip").orElseGet(Application::defaultHip))
-                        .fromDate(getFromDate(checkOptional("fromDate")))
+                        .fromDate(fromDate)
                         .number(Integer.valueOf(checkOptional("number").orElseGet(Application::defaultInstanceNumber)))
-                        .outPath(Paths.get(checkOptional("out").orElseGet(Application::defaultOutputLocation)))
+                        .outPath(outPath)
                         .csvPath(Paths.get(checkRequired("csv").orElseThrow(() -> new RuntimeException("Can not run generator"))))
+                        .parallelism(Integer.parseInt(checkOptional("workers").orElseGet(Application::defaultWorkers)))
+                        .sink(sink)
+                        .cohortConfig(checkOptional("cohort").map(Paths::get).orElse(null))
+                        .streaming(Boolean.parseBoolean(checkOptional("streaming").orElse("false")))
+                        .snapshotPath(checkOptional("snapshot").map(Paths::get).orElse(null))
                         .build();
+        configureRuntime();
         DocumentGenerator documentGenerator = generators.get(type);
         documentGenerator.init();
-        try {
+        MetricsExporter exporter = startMetrics();
+        try (sink) {
             documentGenerator.execute(request);
         } catch (Exception e) {
             e.printStackTrace();
         }
+        if (exporter != null) {
+            exporter.stop();
+        }
+    }
+
+    private static MetricsExporter startMetrics() throws Exception {
+        Optional<String> directory = checkOptional("metrics");
+        if (directory.isEmpty()) {
+            return null;
+        }
+        MetricsExporter exporter = new MetricsExporter(Paths.get(directory.get()));
+        exporter.start(Long.parseLong(checkOptional("metricsInterval").orElse(DEFAULT_METRICS_INTERVAL)));
+        return exporter;
+    }
+
+    private static OutputSink createSink(String output, Path outPath, String type, Date fromDate) throws Exception {
+        OutputSink sink = OutputSinks.create(
+                output,
+                outPath,
+                type,
+                Long.parseLong(checkOptional("maxFileSize").orElse(DEFAULT_MAX_FILE_SIZE_MB)) * 1024 * 1024,
+                Integer.parseInt(checkOptional("compression").orElse(DEFAULT_COMPRESSION)),
+                Dates.startOfDay(fromDate));
+        if (Boolean.parseBoolean(checkOptional("pipeline").orElse("false"))) {
+            sink = new PipelinedSink(sink,
+                    Integer.parseInt(checkOptional("encodeWorkers").orElseGet(Application::defaultEncodeWorkers)),
+                    Integer.parseInt(checkOptional("writeWorkers").orElse("1")),
+                    Integer.parseInt(checkOptional("pipelineQueue").orElse(DEFAULT_PIPELINE_QUEUE)));
+        }
+        //one json file per document does not depend on the order they are written in, all other outputs do
+        if (checkOptional("seed").isPresent() && !OutputSinks.FILES.equalsIgnoreCase(output)) {
+            OrderedSink ordered = new OrderedSink(sink);
+            GenerationEngine.setSequencer(ordered);
+            return ordered;
+        }
+        return sink;
+    }
+
+    private static void startServer() throws Exception {
+        configureRuntime();
+        Map<String, DocumentGenerator> served = new HashMap<>(generators);
+        //value sets are converted from a csv on the local file system
+        served.remove("VS");
+        for (DocumentGenerator generator : served.values()) {
+            generator.init();
+        }
+        GenerationEngine.setReporting(false);
+        Progress.setEnabled(false);
+        startMetrics();
+        new GenerationServer(served,
+                Integer.parseInt(checkOptional("port").orElse(DEFAULT_PORT)),
+                Integer.parseInt(checkOptional("workers").orElseGet(Application::defaultWorkers)),
+                Integer.parseInt(checkOptional("queueSize").orElse(DEFAULT_QUEUE_SIZE))).start();
     }
+
+    private static void startLoad() throws Exception {
+        configureRuntime();
+        HcxCoverageEligibilityRequestGenerator generator = new HcxCoverageEligibilityRequestGenerator();
+        generator.init();
+        List<byte[]> payloads = LoadDriver.createPayloads(generator, DocRequest.builder()
+                .type("CEREQ")
+                .patientId(checkOptional("id").orElse(null))
+                .patientName(checkOptional("name").orElseGet(Application::defaultPatient))
+                .provName(checkOptional("hip").orElseGet(Application::defaultHip))
+                .fromDate(getFromDate(checkOptional("fromDate")))
+                .number(Integer.parseInt(checkOptional("payloads").orElse(DEFAULT_PAYLOADS)))
+                .parallelism(Integer.parseInt(checkOptional("workers").orElseGet(Application::defaultWorkers)))
+                .build());
+
+        String target = checkOptional("target").orElse(null);
+        MockHcxGateway gateway = null;
+        if (target == null) {
+            gateway = new MockHcxGateway(0,
+                    Long.parseLong(checkOptional("mockLatency").orElse("20")),
+                    Double.parseDouble(checkOptional("mockErrorRate").orElse("0.01")));
+            gateway.start();
+            target = gateway.getUrl();
+        }
+        try {
+            new LoadDriver(URI.create(target),
+                    getLoadProfile(),
+                    payloads,
+                    Integer.parseInt(checkOptional("maxInFlight").orElse("1000")),
+                    Duration.ofSeconds(Long.parseLong(checkOptional("timeout").orElse("10")))).run();
+        } finally {
+            if (gateway != null) {
+                gateway.stop();
+            }
+        }
+    }
+
+    private static LoadProfile getLoadProfile() throws Exception {
+        String profile = checkOptional("profile").orElse("constant");
+        double rate = Double.parseDouble(checkOptional("rate").orElse("50"));
+        double duration = Double.parseDouble(checkOptional("duration").orElse("30"));
+        switch (profile.toLowerCase()) {
+            case "constant":
+                return LoadProfile.constant(rate, duration);
+            case "ramp":
+                return LoadProfile.ramp(rate, Double.parseDouble(checkRequired("rampTo")
+                        .orElseThrow(() -> new RuntimeException("Can not ramp up the load"))), duration);
+            case "burst":
+                return LoadProfile.burst(rate,
+                        Double.parseDouble(checkRequired("burstRate")
+                                .orElseThrow(() -> new RuntimeException("Can not burst the load"))),
+                        Double.parseDouble(checkOptional("burstEvery").orElse("10")),
+                        Double.parseDouble(checkOptional("burstLength").orElse("1")),
+                        duration);
+            default:
+                throw new RuntimeException("Unsupported load profile: " + profile + ", possible values: constant, ramp, burst");
+        }
+    }
+
+    private static void configureRuntime() throws Exception {
+        RandomSource.setSeed(checkOptional("seed").map(Long::valueOf).orElse(null));
+        AttachmentPayloads.configure(
+                checkOptional("attachmentDir").map(Paths::get).orElse(null),
+                "reference".equalsIgnoreCase(checkOptional("attachments").orElse("inline")));
+        ReferenceCatalogs.configure(checkOptional("catalogDir").map(Paths::get).orElse(null));
+        OrganizationRegistry.configure(checkOptional("orgDir").map(Paths::get).orElse(null));
+    }
+
     private static String defaultHip() {
         System.out.println("Defaulting Provider *hip* to max");
         return "max";
@@ -83,11 +258,21 @@ public class Application {
         return "1";
     }
 
+    private static String defaultWorkers() {
+        int workers = Runtime.getRuntime().availableProcessors();
+        System.out.println("Defaulting *workers* to " + workers);
+        return String.valueOf(workers);
+    }
+
+    private static String defaultEncodeWorkers() {
+        return String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
     private static String getDocumentType(Optional<String> type) {
         return supportedTypes.contains(type.get().toUpperCase()) ? type.get().toUpperCase() : null;
     }
 
-    private static Date getFromDate(Optional<String> fromDate) throws ParseException {
+    private static Date getFromDate(Optional<String> fromDate) {
         if (fromDate.isEmpty()) {
             System.out.println("*fromDate* is blank. Defaulting to today's date.");
             return new Date();
@@ -97,8 +282,7 @@ public class Application {
             System.out.println("*fromDate* is blank. Defaulting to today's date.");
             return new Date();
         }
-        Date date = new SimpleDateFormat("yyyy-MM-dd").parse(fromDate.get());
-        return date;
+        return Dates.parseDate(fromDate.get());
     }
 
     private static Optional<String> checkRequired(String name) throws Exception {
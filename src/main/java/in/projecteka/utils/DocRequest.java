@@ -1,5 +1,7 @@
 package in.projecteka.utils;
 
+import in.projecteka.utils.data.model.Patient;
+import in.projecteka.utils.output.OutputSink;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -7,7 +9,7 @@ import java.nio.file.Path;
 import java.util.Date;
 
 @Getter
-@Builder
+@Builder(toBuilder = true)
 public class DocRequest {
     private String patientName;
     private String patientId;
@@ -17,4 +19,13 @@ public class DocRequest {
     private Path outPath;
     private String type;
     private Path csvPath;
+    private int parallelism;
+    private OutputSink sink;
+    //synthetic patient of a cohort, takes precedence over patientName
+    private Patient patient;
+    private Path cohortConfig;
+    //write value sets progressively instead of building them in memory
+    private boolean streaming;
+    //binary ValueSetIndex snapshot of the converted csvs
+    private Path snapshotPath;
 }
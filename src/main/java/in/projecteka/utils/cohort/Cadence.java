@@ -0,0 +1,90 @@
+package in.projecteka.utils.cohort;
+
+import in.projecteka.utils.common.RandomSource;
+
+/**
+ * How often documents of one type occur in the timeline of a patient, in days from the start of the timeline.
+ * Configured as one of
+ * <ul>
+ *     <li>{@code poisson:<mean days>} - at random, on average that many days apart (e.g. OP visits)</li>
+ *     <li>{@code every:<days>[:<jitter days>]} - scheduled, that many days apart give or take the jitter, starting
+ *     at a random day of the first interval (e.g. immunizations, annual check ups)</li>
+ * </ul>
+ */
+public abstract class Cadence {
+
+    public static Cadence parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0].trim().toLowerCase()) {
+                case "poisson":
+                    return new Poisson(Double.parseDouble(parts[1].trim()));
+                case "every":
+                    return new Every(Integer.parseInt(parts[1].trim()),
+                            parts.length > 2 ? Integer.parseInt(parts[2].trim()) : 0);
+                default:
+                    throw new RuntimeException("Unknown cadence: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new RuntimeException("Invalid cadence: " + spec);
+        }
+    }
+
+    /**
+     * @return day of the first document
+     */
+    public abstract int first();
+
+    /**
+     * @return day of the document after the one on the given day, always later than it
+     */
+    public abstract int next(int day);
+
+    private static class Poisson extends Cadence {
+        private final double meanDays;
+
+        Poisson(double meanDays) {
+            if (meanDays <= 0) {
+                throw new RuntimeException("Mean days of a poisson cadence must be positive");
+            }
+            this.meanDays = meanDays;
+        }
+
+        @Override
+        public int first() {
+            //memoryless, the timeline may start anywhere between two visits
+            return next(-1);
+        }
+
+        @Override
+        public int next(int day) {
+            //exponentially distributed gaps make the number of documents per interval poisson distributed
+            double gap = -meanDays * Math.log(1 - RandomSource.nextDouble());
+            return day + Math.max(1, (int) Math.round(gap));
+        }
+    }
+
+    private static class Every extends Cadence {
+        private final int days;
+        private final int jitter;
+
+        Every(int days, int jitter) {
+            if (days < 1 || jitter < 0 || jitter >= days) {
+                throw new RuntimeException("Cadence needs at least 1 day between documents and a jitter below that");
+            }
+            this.days = days;
+            this.jitter = jitter;
+        }
+
+        @Override
+        public int first() {
+            return RandomSource.nextInt(0, days);
+        }
+
+        @Override
+        public int next(int day) {
+            int offset = jitter == 0 ? 0 : RandomSource.nextInt(-jitter, jitter + 1);
+            return day + Math.max(1, days + offset);
+        }
+    }
+}
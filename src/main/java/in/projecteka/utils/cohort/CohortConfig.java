@@ -0,0 +1,158 @@
+package in.projecteka.utils.cohort;
+
+import in.projecteka.utils.common.RandomSource;
+import in.projecteka.utils.common.Utils;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Distributions of a cohort, read from cohort.properties (or the file given with -Dcohort).
+ */
+@Getter
+public class CohortConfig {
+    private static final String CADENCE = "cadence.";
+
+    private final List<String> maleNames;
+    private final List<String> femaleNames;
+    private final List<String> familyNames;
+    private final double femaleRatio;
+    private final List<String> hidPrefixes;
+    private final int minBirthYear;
+    private final int maxBirthYear;
+    private final int timelineDays;
+    //cadence of every document type, sorted by type so same day documents come in alphabetical order; empty when
+    //documents are drawn by weight
+    private final Map<String, Cadence> cadences = new TreeMap<>();
+    private String[] documentTypes;
+    private int[] cumulativeWeights;
+    private int minDocuments;
+    private int maxDocuments;
+
+    private CohortConfig(Properties properties) {
+        maleNames = list(properties, "names.male");
+        femaleNames = list(properties, "names.female");
+        familyNames = list(properties, "names.family");
+        femaleRatio = Double.parseDouble(value(properties, "gender.female"));
+        hidPrefixes = list(properties, "hid.prefixes");
+        minBirthYear = Integer.parseInt(value(properties, "birthYear.min"));
+        maxBirthYear = Integer.parseInt(value(properties, "birthYear.max"));
+        timelineDays = Integer.parseInt(value(properties, "timeline.days"));
+        if (timelineDays < 1) {
+            throw new RuntimeException("Invalid cohort configuration");
+        }
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(CADENCE)) {
+                cadences.put(key.substring(CADENCE.length()).trim().toUpperCase(), Cadence.parse(properties.getProperty(key)));
+            }
+        }
+        if (cadences.isEmpty()) {
+            readWeights(properties);
+        }
+    }
+
+    private void readWeights(Properties properties) {
+        List<String> types = list(properties, "documents.types");
+        documentTypes = new String[types.size()];
+        cumulativeWeights = new int[types.size()];
+        int total = 0;
+        for (int i = 0; i < types.size(); i++) {
+            String[] parts = types.get(i).split(":");
+            documentTypes[i] = parts[0].trim().toUpperCase();
+            total += parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            cumulativeWeights[i] = total;
+        }
+        minDocuments = Integer.parseInt(value(properties, "documents.min"));
+        maxDocuments = Integer.parseInt(value(properties, "documents.max"));
+        if (total <= 0 || minDocuments < 0 || maxDocuments < minDocuments) {
+            throw new RuntimeException("Invalid cohort configuration");
+        }
+    }
+
+    public static CohortConfig load(Path path) throws IOException {
+        if (path == null) {
+            return new CohortConfig(Utils.loadFromFile("/cohort.properties"));
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        return new CohortConfig(properties);
+    }
+
+    /**
+     * Picks a document type according to the configured weights.
+     */
+    public String nextDocumentType() {
+        int pick = RandomSource.nextInt(0, cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return documentTypes[i];
+            }
+        }
+        return documentTypes[documentTypes.length - 1];
+    }
+
+    public List<String> getDocumentTypes() {
+        return cadences.isEmpty() ? Arrays.asList(documentTypes) : new ArrayList<>(cadences.keySet());
+    }
+
+    /**
+     * Documents of the next patient, in chronological order. With cadences, every type follows its own cadence over
+     * the timeline; otherwise a number of documents between documents.min and documents.max is spread uniformly
+     * over it, each of a type picked by weight.
+     */
+    public Iterator<TimelineEvent> timeline() {
+        if (!cadences.isEmpty()) {
+            return new Timeline(cadences, timelineDays);
+        }
+        int[] days = new int[RandomSource.nextInt(minDocuments, maxDocuments + 1)];
+        for (int d = 0; d < days.length; d++) {
+            days[d] = RandomSource.nextInt(0, timelineDays);
+        }
+        Arrays.sort(days);
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < days.length;
+            }
+
+            @Override
+            public TimelineEvent next() {
+                if (next >= days.length) {
+                    throw new NoSuchElementException();
+                }
+                return new TimelineEvent(days[next++], nextDocumentType());
+            }
+        };
+    }
+
+    private static String value(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (Utils.isBlank(value)) {
+            throw new RuntimeException("Cohort configuration is missing " + key);
+        }
+        return value.trim();
+    }
+
+    private static List<String> list(Properties properties, String key) {
+        return Arrays.stream(value(properties, key).split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
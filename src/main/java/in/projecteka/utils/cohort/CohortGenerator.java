@@ -0,0 +1,88 @@
+package in.projecteka.utils.cohort;
+
+import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.common.Utils;
+import in.projecteka.utils.data.DiagnosticReportGenerator;
+import in.projecteka.utils.data.DischargeSummaryGenerator;
+import in.projecteka.utils.data.HealthDocumentRecordGenerator;
+import in.projecteka.utils.data.ImmunizationGenerator;
+import in.projecteka.utils.data.OPConsultationGenerator;
+import in.projecteka.utils.data.PrescriptionGenerator;
+import in.projecteka.utils.data.WellnessRecordGenerator;
+import in.projecteka.utils.data.model.Patient;
+import in.projecteka.utils.hcx.HcxCoverageEligibilityRequestGenerator;
+import in.projecteka.utils.hcx.HcxCoverageEligibilityResponseGenerator;
+import org.hl7.fhir.r4.model.Bundle;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates a cohort of request.number synthetic patients, each with a random mix of documents spread over a
+ * timeline starting at fromDate (see {@link CohortConfig#timeline()}). Patients are generated independently across
+ * the workers and every document is handed to the sink as soon as it is built, so memory does not grow with the size
+ * of the cohort or the length of the timelines.
+ */
+public class CohortGenerator implements DocumentGenerator {
+    private final Map<String, BundleGenerator> generators = new HashMap<>() {{
+        put("PR", new PrescriptionGenerator());
+        put("DR", new DiagnosticReportGenerator());
+        put("OP", new OPConsultationGenerator());
+        put("DS", new DischargeSummaryGenerator());
+        put("IR", new ImmunizationGenerator());
+        put("HD", new HealthDocumentRecordGenerator());
+        put("WR", new WellnessRecordGenerator());
+        put("CEREQ", new HcxCoverageEligibilityRequestGenerator());
+        put("CERES", new HcxCoverageEligibilityResponseGenerator());
+    }};
+
+    @Override
+    public void init() throws Exception {
+        for (BundleGenerator generator : generators.values()) {
+            generator.init();
+        }
+    }
+
+    @Override
+    public void execute(DocRequest request) throws Exception {
+        CohortConfig config = CohortConfig.load(request.getCohortConfig());
+        for (String type : config.getDocumentTypes()) {
+            if (!generators.containsKey(type)) {
+                throw new RuntimeException("Cohort can not generate documents of type: " + type);
+            }
+        }
+        PatientSynthesizer synthesizer = new PatientSynthesizer(config);
+        LongAdder documents = new LongAdder();
+        GenerationEngine.run(request.getNumber(), request.getParallelism(), "patients", i -> {
+            Patient patient = synthesizer.synthesize(i);
+            DocRequest patientRequest = request.toBuilder()
+                    .patient(patient)
+                    .patientName(patient.getName())
+                    .patientId(null)
+                    .build();
+            Iterator<TimelineEvent> timeline = config.timeline();
+            int d = 0;
+            while (timeline.hasNext()) {
+                TimelineEvent event = timeline.next();
+                String type = event.getDocumentType();
+                Date date = Utils.getFutureDate(request.getFromDate(), event.getDay());
+                Bundle bundle = generators.get(type).buildBundle(patientRequest, date);
+                String fileName = String.format("%s%s%sDoc%s-%02d.json",
+                        request.getProvName().toUpperCase(),
+                        patient.getHid(),
+                        type,
+                        Utils.formatDate(date, "yyyyMMdd"),
+                        d++);
+                request.getSink().write(fileName, bundle);
+            }
+            documents.add(d);
+        });
+        System.out.println(String.format("Generated %d documents for %d patients", documents.sum(), request.getNumber()));
+    }
+}
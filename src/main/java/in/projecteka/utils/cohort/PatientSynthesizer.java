@@ -0,0 +1,42 @@
+package in.projecteka.utils.cohort;
+
+import in.projecteka.utils.common.RandomSource;
+import in.projecteka.utils.data.model.Patient;
+
+import java.util.List;
+
+/**
+ * Creates the patients of a cohort. Ids are derived from the patient index, so they are unique within the cohort,
+ * everything else is drawn from the configured distributions.
+ */
+public class PatientSynthesizer {
+    private static final long ABHA_RANGE = 1_000_000_000_000L;
+    //odd and not a multiple of 5, so index -> abha number is a permutation of the range
+    private static final long ABHA_STEP = 7_919L;
+
+    private final CohortConfig config;
+
+    public PatientSynthesizer(CohortConfig config) {
+        this.config = config;
+    }
+
+    public Patient synthesize(long index) {
+        boolean female = RandomSource.nextDouble() < config.getFemaleRatio();
+        String given = pick(female ? config.getFemaleNames() : config.getMaleNames());
+        String family = pick(config.getFamilyNames());
+        int birthYear = RandomSource.nextInt(config.getMinBirthYear(), config.getMaxBirthYear() + 1);
+        String hid = String.format("%s%07d", pick(config.getHidPrefixes()), index + 1);
+        String cmId = String.format("%s%s%d", given.toLowerCase(), family.toLowerCase(), index + 1);
+        String hospitalId = String.format("%s.%s.%d", given.toLowerCase(), family.toLowerCase(), birthYear);
+        return new Patient(given + " " + family, female ? "female" : "male", hid, cmId, hospitalId, abhaNumber(index));
+    }
+
+    private static String abhaNumber(long index) {
+        long digits = Math.floorMod(index * ABHA_STEP + 104_729L, ABHA_RANGE);
+        return String.format("91-%04d-%04d-%04d", digits / 100_000_000L, (digits / 10_000L) % 10_000L, digits % 10_000L);
+    }
+
+    private static String pick(List<String> values) {
+        return values.get(RandomSource.nextInt(0, values.size()));
+    }
+}
@@ -0,0 +1,68 @@
+package in.projecteka.utils.cohort;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * The documents of one patient over a horizon, merged from the cadences of every document type in chronological
+ * order. Only the next document of each type is known at any time, so a timeline of any length takes as much memory
+ * as the number of types, and the dates of later documents are drawn as the earlier ones are generated.
+ * Documents on the same day come in the iteration order of the cadences, which is alphabetical by document type
+ * for the cadences of a {@link CohortConfig}.
+ */
+public class Timeline implements Iterator<TimelineEvent> {
+    private final int horizonDays;
+    private final PriorityQueue<Cursor> due = new PriorityQueue<>((a, b) ->
+            a.day != b.day ? Integer.compare(a.day, b.day) : Integer.compare(a.order, b.order));
+
+    /**
+     * @param cadences    cadence of every document type; its iteration order breaks ties between documents due on
+     *                    the same day
+     * @param horizonDays documents are due in [0, horizonDays)
+     */
+    public Timeline(Map<String, Cadence> cadences, int horizonDays) {
+        this.horizonDays = horizonDays;
+        int order = 0;
+        for (Map.Entry<String, Cadence> entry : cadences.entrySet()) {
+            Cursor cursor = new Cursor(entry.getKey(), entry.getValue(), order++);
+            cursor.day = cursor.cadence.first();
+            if (cursor.day < horizonDays) {
+                due.add(cursor);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !due.isEmpty();
+    }
+
+    @Override
+    public TimelineEvent next() {
+        Cursor cursor = due.poll();
+        if (cursor == null) {
+            throw new NoSuchElementException();
+        }
+        TimelineEvent event = new TimelineEvent(cursor.day, cursor.documentType);
+        cursor.day = cursor.cadence.next(cursor.day);
+        if (cursor.day < horizonDays) {
+            due.add(cursor);
+        }
+        return event;
+    }
+
+    private static class Cursor {
+        private final String documentType;
+        private final Cadence cadence;
+        private final int order;
+        private int day;
+
+        Cursor(String documentType, Cadence cadence, int order) {
+            this.documentType = documentType;
+            this.cadence = cadence;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package in.projecteka.utils.cohort;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A document due in the timeline of a patient.
+ */
+@Getter
+@AllArgsConstructor
+public class TimelineEvent {
+    //days from the start of the timeline
+    private final int day;
+    private final String documentType;
+}
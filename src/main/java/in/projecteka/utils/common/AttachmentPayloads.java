@@ -0,0 +1,194 @@
+package in.projecteka.utils.common;
+
+import lombok.SneakyThrows;
+import org.hl7.fhir.r4.model.Attachment;
+import org.hl7.fhir.r4.model.Base64BinaryType;
+import org.hl7.fhir.r4.model.Binary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static in.projecteka.utils.common.Constants.EKA_ATTACHMENT_URL;
+
+/**
+ * Documents embedded into DocumentReference, DiagnosticReport and Binary resources. Each document is loaded once
+ * and the same immutable content is shared by every bundle. Optionally, documents are picked from an external
+ * directory (e.g. real PDFs/images), and attachments may carry only a url, size and hash instead of the content.
+ */
+public class AttachmentPayloads {
+    public static final String SURGICAL_REPORT = "/sample-surgical-report-base64.txt";
+    public static final String PRESCRIPTION = "/sample-prescription-base64.txt";
+
+    private static final Map<String, Payload> samples = new ConcurrentHashMap<>();
+    private static volatile List<Payload> external = Collections.emptyList();
+    private static volatile boolean referenceOnly = false;
+
+    /**
+     * @param directory     if given, every regular file in it is used instead of the bundled samples
+     * @param referenceOnly if true, attachments refer to the document by url, size and hash instead of embedding it
+     */
+    public static void configure(Path directory, boolean referenceOnly) throws IOException {
+        if (directory != null) {
+            try (Stream<Path> files = Files.list(directory)) {
+                List<Path> paths = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                if (paths.isEmpty()) {
+                    throw new RuntimeException("No attachment files found in " + directory);
+                }
+                List<Payload> payloads = new ArrayList<>();
+                for (Path path : paths) {
+                    payloads.add(loadFile(path));
+                }
+                external = Collections.unmodifiableList(payloads);
+            }
+        }
+        AttachmentPayloads.referenceOnly = referenceOnly;
+    }
+
+    /**
+     * @param sample one of the bundled samples, used when no external directory is configured
+     */
+    public static Payload get(String sample) {
+        List<Payload> payloads = external;
+        if (!payloads.isEmpty()) {
+            return payloads.get(Utils.randomInt(0, payloads.size()));
+        }
+        return samples.computeIfAbsent(sample, AttachmentPayloads::loadSample);
+    }
+
+    public static Attachment attachment(String sample, String title) {
+        Payload payload = get(sample);
+        Attachment attachment = new Attachment();
+        attachment.setTitle(title);
+        attachment.setContentType(payload.getContentType());
+        if (referenceOnly) {
+            attachment.setUrl(String.format(EKA_ATTACHMENT_URL, payload.getName()));
+            attachment.setSize(payload.getSize());
+            attachment.setHash(payload.getHash());
+        } else {
+            attachment.setDataElement(payload.getData());
+        }
+        return attachment;
+    }
+
+    /**
+     * Binary has no notion of a url, so the content is always embedded (still shared across bundles).
+     */
+    public static Binary binary(String sample) {
+        Payload payload = get(sample);
+        Binary binary = new Binary();
+        binary.setContentType(payload.getContentType());
+        binary.setDataElement(payload.getData());
+        return binary;
+    }
+
+    @SneakyThrows
+    private static Payload loadSample(String sample) {
+        //bundled samples are stored base64 encoded
+        String encoded = new String(Utils.readFileContent(sample), StandardCharsets.US_ASCII).trim();
+        return new Payload(sample.substring(1), "application/pdf", Base64.getDecoder().decode(encoded));
+    }
+
+    /**
+     * Reads the whole file onto the heap: the data element keeps the bytes and their base64 form, so an attached
+     * file takes about 2.3 times its size in memory for the rest of the run.
+     */
+    private static Payload loadFile(Path path) throws IOException {
+        return new Payload(path.getFileName().toString(), contentType(path), Files.readAllBytes(path));
+    }
+
+    private static String contentType(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".pdf")) return "application/pdf";
+        if (name.endsWith(".png")) return "image/png";
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) return "image/jpeg";
+        String probed = Files.probeContentType(path);
+        return probed != null ? probed : "application/octet-stream";
+    }
+
+    public static class Payload {
+        private final String name;
+        private final String contentType;
+        private final SharedBase64BinaryType data;
+        private final int size;
+        private final byte[] hash;
+
+        @SneakyThrows
+        Payload(String name, String contentType, byte[] content) {
+            this.name = name;
+            this.contentType = contentType;
+            this.data = new SharedBase64BinaryType(content);
+            this.size = content.length;
+            this.hash = MessageDigest.getInstance("SHA-1").digest(content);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public Base64BinaryType getData() {
+            return data;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public byte[] getHash() {
+            return hash.clone();
+        }
+    }
+
+    /**
+     * Read-only data element shared by all attachments of the same payload.
+     * The base64 form is computed once instead of every time a bundle is encoded.
+     */
+    private static class SharedBase64BinaryType extends Base64BinaryType {
+        private static final long serialVersionUID = 1L;
+
+        private final String encoded;
+
+        SharedBase64BinaryType(byte[] content) {
+            super(content);
+            this.encoded = super.getValueAsString();
+        }
+
+        @Override
+        public String getValueAsString() {
+            return encoded;
+        }
+
+        @Override
+        public Base64BinaryType setValue(byte[] value) {
+            checkWritable();
+            return super.setValue(value);
+        }
+
+        @Override
+        public void setValueAsString(String value) {
+            checkWritable();
+            super.setValueAsString(value);
+        }
+
+        //the constructor sets the value before the encoded form is known
+        private void checkWritable() {
+            if (encoded != null) {
+                throw new UnsupportedOperationException("Shared attachment data can not be modified");
+            }
+        }
+    }
+}
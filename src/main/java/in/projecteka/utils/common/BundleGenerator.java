@@ -0,0 +1,23 @@
+package in.projecteka.utils.common;
+
+import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.metrics.BundleMetrics;
+import org.hl7.fhir.r4.model.Bundle;
+
+import java.util.Date;
+
+/**
+ * Generator of FHIR document bundles. Building a single document is exposed separately from execute,
+ * so that bundles can be built without writing them anywhere (e.g. from benchmarks).
+ */
+public interface BundleGenerator extends DocumentGenerator {
+    Bundle createBundle(DocRequest request, Date date) throws Exception;
+
+    /**
+     * {@link #createBundle} that records the build time and size of the bundle in the generator's metrics,
+     * and as a flight recorder event.
+     */
+    default Bundle buildBundle(DocRequest request, Date date) throws Exception {
+        return BundleMetrics.of(getClass()).build(request.getType(), () -> createBundle(request, date));
+    }
+}
@@ -0,0 +1,82 @@
+package in.projecteka.utils.common;
+
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.ResourceType;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash index over the entries of a bundle, by resource type and id, by fullUrl and by resource type alone
+ * (first resource of a type, e.g. the patient of a document). The index is kept in the bundle's user data, so
+ * it is not encoded, and catches up with entries added since the last lookup, so lookups are O(1) however the
+ * entries were added. Like the first match of a scan, the first entry wins when ids repeat.
+ */
+public class BundleIndex {
+    private static final String USER_DATA_KEY = BundleIndex.class.getName();
+
+    private final Bundle bundle;
+    private final Map<String, Resource> byTypeAndId = new HashMap<>();
+    private final Map<String, Bundle.BundleEntryComponent> byFullUrl = new HashMap<>();
+    private final Map<ResourceType, Resource> firstByType = new EnumMap<>(ResourceType.class);
+    private int indexed = 0;
+
+    private BundleIndex(Bundle bundle) {
+        this.bundle = bundle;
+    }
+
+    /**
+     * @return the index of the bundle, up to date with its entries
+     */
+    public static BundleIndex of(Bundle bundle) {
+        BundleIndex index = (BundleIndex) bundle.getUserData(USER_DATA_KEY);
+        if (index == null) {
+            index = new BundleIndex(bundle);
+            bundle.setUserData(USER_DATA_KEY, index);
+        }
+        index.catchUp();
+        return index;
+    }
+
+    public Resource find(ResourceType resourceType, String id) {
+        return byTypeAndId.get(key(resourceType, id));
+    }
+
+    public Bundle.BundleEntryComponent findByFullUrl(String fullUrl) {
+        return byFullUrl.get(fullUrl);
+    }
+
+    public Resource first(ResourceType resourceType) {
+        return firstByType.get(resourceType);
+    }
+
+    /**
+     * @return the patient the document is about, i.e. the first patient added to the bundle
+     */
+    public Patient getPatient() {
+        return (Patient) firstByType.get(ResourceType.Patient);
+    }
+
+    private void catchUp() {
+        List<Bundle.BundleEntryComponent> entries = bundle.getEntry();
+        for (; indexed < entries.size(); indexed++) {
+            Bundle.BundleEntryComponent entry = entries.get(indexed);
+            if (entry.hasFullUrl()) {
+                byFullUrl.putIfAbsent(entry.getFullUrl(), entry);
+            }
+            Resource resource = entry.getResource();
+            if (resource != null) {
+                byTypeAndId.putIfAbsent(key(resource.getResourceType(), resource.getId()), resource);
+                firstByType.putIfAbsent(resource.getResourceType(), resource);
+            }
+        }
+    }
+
+    private static String key(ResourceType resourceType, String id) {
+        return resourceType.name() + '|' + id;
+    }
+}
@@ -0,0 +1,183 @@
+package in.projecteka.utils.common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable, array backed list of reference data (doctors, medicines, ...) parsed once from a catalog file.
+ * <p>
+ * A catalog file has one entry per line as {@code [key=]values[;weight]}, the format of the bundled properties files.
+ * Lines without a key are keyed by their (1 based) number; blank lines and lines starting with # are skipped.
+ * Entries are picked uniformly with {@link #random()} or, if any entry has a weight, in proportion to the weights
+ * with {@link #weighted()} (alias method); both take constant time irrespective of the size of the catalog.
+ */
+public class Catalog<T> {
+    private final String name;
+    private final Object[] entries;
+    private final Map<String, Integer> indexByKey;
+    //alias tables, null if the entries are not weighted
+    private final double[] probability;
+    private final int[] alias;
+
+    private Catalog(String name, List<T> entries, Map<String, Integer> indexByKey, double[] weights) {
+        if (entries.isEmpty()) {
+            throw new RuntimeException("Catalog has no entries: " + name);
+        }
+        this.name = name;
+        this.entries = entries.toArray();
+        this.indexByKey = indexByKey;
+        if (weights == null) {
+            this.probability = null;
+            this.alias = null;
+        } else {
+            this.probability = new double[weights.length];
+            this.alias = new int[weights.length];
+            buildAliasTables(weights);
+        }
+    }
+
+    /**
+     * @param resource catalog file on the classpath, e.g. /practitioners.properties
+     */
+    public static <T> Catalog<T> load(String resource, Function<String, T> parser) throws IOException {
+        InputStream stream = Catalog.class.getResourceAsStream(resource);
+        if (stream == null) {
+            throw new RuntimeException("Catalog not found: " + resource);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return read(resource, reader, parser);
+        }
+    }
+
+    public static <T> Catalog<T> load(Path file, Function<String, T> parser) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            return read(file.toString(), reader, parser);
+        }
+    }
+
+    private static <T> Catalog<T> read(String name, BufferedReader reader, Function<String, T> parser) throws IOException {
+        List<T> entries = new ArrayList<>();
+        Map<String, Integer> indexByKey = new HashMap<>();
+        List<Double> weights = new ArrayList<>();
+        boolean weighted = false;
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String key = String.valueOf(lineNumber);
+            int separator = trimmed.indexOf('=');
+            if (separator > 0) {
+                key = trimmed.substring(0, separator).trim();
+                trimmed = trimmed.substring(separator + 1);
+            }
+            double weight = 1;
+            int weightSeparator = trimmed.lastIndexOf(';');
+            if (weightSeparator >= 0) {
+                try {
+                    weight = Double.parseDouble(trimmed.substring(weightSeparator + 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new RuntimeException(String.format("Invalid weight in %s line %d", name, lineNumber));
+                }
+                if (weight < 0) {
+                    throw new RuntimeException(String.format("Negative weight in %s line %d", name, lineNumber));
+                }
+                trimmed = trimmed.substring(0, weightSeparator);
+                weighted = true;
+            }
+            try {
+                entries.add(parser.apply(trimmed));
+            } catch (RuntimeException e) {
+                throw new RuntimeException(String.format("Invalid entry in %s line %d: %s", name, lineNumber, line), e);
+            }
+            indexByKey.put(key, entries.size() - 1);
+            weights.add(weight);
+        }
+        return new Catalog<>(name, entries, indexByKey, weighted ? weights.stream().mapToDouble(w -> w).toArray() : null);
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) entries[index];
+    }
+
+    /**
+     * @return the entry of the given key, null if there is none
+     */
+    public T find(String key) {
+        Integer index = indexByKey.get(key);
+        return index == null ? null : get(index);
+    }
+
+    public T random() {
+        return get(randomIndex());
+    }
+
+    public int randomIndex() {
+        return RandomSource.nextInt(0, entries.length);
+    }
+
+    /**
+     * An entry picked in proportion to its weight, or uniformly if the catalog has no weights.
+     */
+    public T weighted() {
+        if (probability == null) {
+            return random();
+        }
+        int index = randomIndex();
+        return get(RandomSource.nextDouble() < probability[index] ? index : alias[index]);
+    }
+
+    //Vose's alias method: every column holds its own share of the probability and tops up with one other entry
+    private void buildAliasTables(double[] weights) {
+        int n = weights.length;
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new RuntimeException("Catalog weights add up to zero: " + name);
+        }
+        double[] scaled = new double[n];
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            (scaled[i] < 1 ? small : large).push(i);
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            (scaled[more] < 1 ? small : large).push(more);
+        }
+        //left overs are 1 up to rounding errors
+        while (!large.isEmpty()) {
+            probability[large.pop()] = 1;
+        }
+        while (!small.isEmpty()) {
+            probability[small.pop()] = 1;
+        }
+    }
+}
@@ -9,4 +9,7 @@ public class Constants {
     public static final String EKA_SCT_SYSTEM = "https://projecteka.in/sct";
     public static final String EKA_ACT_SYSTEM = "https://projecteka.in/act";
     public static final String EKA_LOINC_SYSTEM = "https://projecteka.in/loinc";
+    public static final String EKA_ATTACHMENT_URL = "https://projecteka.in/attachments/%s";
+    public static final String ABHA_NUMBER_SYSTEM = "https://healthid.ndhm.gov.in";
+    public static final String ABHA_ADDRESS_SYSTEM = "https://healthid.ndhm.gov.in/address";
 }
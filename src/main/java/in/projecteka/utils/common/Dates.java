@@ -0,0 +1,99 @@
+package in.projecteka.utils.common;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date arithmetic and formatting for generated documents, in one zone for the whole process (the system zone,
+ * unless configured). Formatters are immutable and cached per pattern, so all of it is safe to call from
+ * parallel workers. Adding days is plain arithmetic on epoch millis for dates after the last offset change of the
+ * zone, e.g. since 1945 in Asia/Kolkata, or always in UTC; zones that still change offsets (daylight saving) take
+ * the zone rules into account.
+ */
+public class Dates {
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long MILLIS_PER_MINUTE = TimeUnit.MINUTES.toMillis(1);
+    //like the SimpleDateFormat it replaces: months and days may have one digit, and overflow into the next ones
+    private static final DateTimeFormatter DATE_PARSER = new DateTimeFormatterBuilder()
+            .appendPattern("uuuu-M-d")
+            .toFormatter()
+            .withResolverStyle(ResolverStyle.LENIENT);
+
+    private static final Map<String, DateTimeFormatter> formatters = new ConcurrentHashMap<>();
+    private static volatile ZoneId zone = ZoneId.systemDefault();
+    //epoch millis from which on the offset of the zone does not change any more, Long.MAX_VALUE if it still does
+    private static volatile long fixedOffsetSince = fixedOffsetSince(zone);
+
+    public static void setZone(ZoneId zone) {
+        Dates.zone = zone;
+        Dates.fixedOffsetSince = fixedOffsetSince(zone);
+    }
+
+    private static long fixedOffsetSince(ZoneId zone) {
+        ZoneRules rules = zone.getRules();
+        if (rules.isFixedOffset()) {
+            return Long.MIN_VALUE;
+        }
+        Instant now = Instant.now();
+        if (rules.nextTransition(now) != null) {
+            return Long.MAX_VALUE;
+        }
+        ZoneOffsetTransition last = rules.previousTransition(now);
+        return last == null ? Long.MIN_VALUE : last.getInstant().toEpochMilli();
+    }
+
+    public static ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * @param pattern a {@link DateTimeFormatter} pattern, e.g. yyyyMMdd
+     */
+    public static String format(Date date, String pattern) {
+        return formatters.computeIfAbsent(pattern, DateTimeFormatter::ofPattern)
+                .format(Instant.ofEpochMilli(date.getTime()).atZone(zone));
+    }
+
+    /**
+     * @return start of the given day (yyyy-MM-dd, or yyyy-M-d)
+     */
+    public static Date parseDate(String date) {
+        return Date.from(LocalDate.parse(date, DATE_PARSER).atStartOfDay(zone).toInstant());
+    }
+
+    public static Date startOfDay(Date date) {
+        return Date.from(Instant.ofEpochMilli(date.getTime()).atZone(zone).toLocalDate().atStartOfDay(zone).toInstant());
+    }
+
+    /**
+     * Same time of the day, the given number of days later (or earlier, if negative).
+     */
+    public static Date plusDays(Date date, long days) {
+        return new Date(plusDays(date.getTime(), days));
+    }
+
+    public static long plusDays(long epochMillis, long days) {
+        long since = fixedOffsetSince;
+        if (epochMillis >= since) {
+            long result = epochMillis + days * MILLIS_PER_DAY;
+            if (result >= since) {
+                return result;
+            }
+        }
+        return Instant.ofEpochMilli(epochMillis).atZone(zone).plusDays(days).toInstant().toEpochMilli();
+    }
+
+    public static Date plusMinutes(Date date, long minutes) {
+        return new Date(date.getTime() + minutes * MILLIS_PER_MINUTE);
+    }
+}
@@ -1,13 +1,11 @@
 package in.projecteka.utils.common;
 
+import in.projecteka.utils.DocRequest;
 import in.projecteka.utils.data.model.Doctor;
 import in.projecteka.utils.data.model.Vaccine;
 import in.projecteka.utils.data.model.Medicine;
 import in.projecteka.utils.data.model.SimpleCondition;
 import in.projecteka.utils.data.model.SimpleDiagnosticTest;
-import lombok.SneakyThrows;
-import org.apache.commons.lang3.RandomStringUtils;
-import org.apache.commons.lang3.RandomUtils;
 import org.hl7.fhir.r4.model.Appointment;
 import org.hl7.fhir.r4.model.Attachment;
 import org.hl7.fhir.r4.model.Bundle;
@@ -34,14 +32,12 @@ import org.hl7.fhir.r4.model.ResourceType;
 import org.hl7.fhir.r4.model.StringType;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
+import static in.projecteka.utils.common.Constants.ABHA_ADDRESS_SYSTEM;
+import static in.projecteka.utils.common.Constants.ABHA_NUMBER_SYSTEM;
 import static in.projecteka.utils.common.Constants.EKA_ACT_SYSTEM;
 import static in.projecteka.utils.common.Constants.EKA_LOINC_SYSTEM;
 import static in.projecteka.utils.common.Constants.EKA_SCT_SYSTEM;
@@ -94,7 +90,7 @@ public class FHIRUtils {
 
     public static Bundle createBundle(Date forDate, String hipDomain) {
         Bundle bundle = new Bundle();
-        bundle.setId(UUID.randomUUID().toString());
+        bundle.setId(Utils.randomId());
         bundle.setTimestamp(forDate);
         bundle.setIdentifier(getIdentifier(bundle.getId(), hipDomain, "bundle"));
         Meta bundleMeta = Utils.getMeta(forDate);
@@ -103,22 +99,33 @@ public class FHIRUtils {
         return bundle;
     }
 
-    public static Practitioner createAuthor(String hipPrefix, Properties doctors) {
-        String details = (String) doctors.get(String.valueOf(Utils.randomInt(1, doctors.size())));
-        Doctor doc = Doctor.parse(details);
-        Practitioner practitioner = new Practitioner();
+    public static Practitioner createAuthor(String hipPrefix) {
+        Doctor doc = ReferenceCatalogs.doctors().weighted();
+        Practitioner practitioner = doc.getPractitioner().copy();
         practitioner.setId(hipPrefix.toUpperCase() + doc.getDocId());
         practitioner.setIdentifier(Arrays.asList(getIdentifier(practitioner.getId(), "mciindia", "doctor")));
-        practitioner.getName().add(getHumanName(doc.getName(), doc.getPrefix(), doc.getSuffix()));
         return practitioner;
     }
 
-    public static Patient getPatientResource(String name, String patientId, Properties patients) throws Exception {
-        Object patientDetail = patients.get(name);
-        if (patientDetail == null) {
+    /**
+     * The synthetic patient of the request if there is one, otherwise the patient looked up by name.
+     */
+    public static Patient getPatientResource(DocRequest request) throws Exception {
+        if (request.getPatient() != null) {
+            return getPatientResource(request.getPatient(), request.getPatientId());
+        }
+        return getPatientResource(request.getPatientName(), request.getPatientId());
+    }
+
+    public static Patient getPatientResource(String name, String patientId) throws Exception {
+        in.projecteka.utils.data.model.Patient patient = ReferenceCatalogs.patients().find(name);
+        if (patient == null) {
             throw new Exception("Can not identify patient with name: " + name);
         }
-        in.projecteka.utils.data.model.Patient patient = in.projecteka.utils.data.model.Patient.parse((String) patientDetail);
+        return getPatientResource(patient, patientId);
+    }
+
+    public static Patient getPatientResource(in.projecteka.utils.data.model.Patient patient, String patientId) {
         Patient patientResource = new Patient();
         if (Utils.isBlank(patientId)) {
             patientResource.setId(patient.getHid());
@@ -127,6 +134,10 @@ public class FHIRUtils {
         }
         patientResource.setName(Collections.singletonList(getHumanName(patient.getName(), null, null)));
         patientResource.setGender(getGender(patient.getGender()));
+        if (!Utils.isBlank(patient.getAbhaNumber())) {
+            patientResource.addIdentifier(getIdentifier(ABHA_NUMBER_SYSTEM, patient.getAbhaNumber()));
+            patientResource.addIdentifier(getIdentifier(ABHA_ADDRESS_SYSTEM, patient.getCmId()));
+        }
         return patientResource;
     }
 
@@ -141,7 +152,7 @@ public class FHIRUtils {
         coding.setCode(encClass);
         coding.setDisplay(display);
         encounter.setClass_(coding);
-        encounter.setId(UUID.randomUUID().toString());
+        encounter.setId(Utils.randomId());
         return encounter;
     }
 
@@ -221,6 +232,8 @@ public class FHIRUtils {
         bundle.addEntry()
                 .setFullUrl(resourceType + "/" + id)
                 .setResource(resource);
+        //keeps lookups while assembling the bundle O(1)
+        BundleIndex.of(bundle);
     }
 
     public static Reference getReferenceToPatient(Patient patientResource) {
@@ -244,12 +257,6 @@ public class FHIRUtils {
         return dateTimeType;
     }
 
-    @SneakyThrows
-    public static String loadOrganization(String hipPrefix) {
-        String fileName = "/orgs/" + hipPrefix + ".json";
-        return new String(Utils.class.getResourceAsStream(fileName).readAllBytes(), StandardCharsets.UTF_8);
-    }
-
     public static CodeableConcept getOPConsultationType() {
         CodeableConcept type = new CodeableConcept();
         Coding coding = type.addCoding();
@@ -271,7 +278,7 @@ public class FHIRUtils {
     public static Condition getCondition(String medCondition) {
         if (Utils.randomBool()) {
             Condition condition = new Condition();
-            condition.setId(UUID.randomUUID().toString());
+            condition.setId(Utils.randomId());
             CodeableConcept concept = new CodeableConcept();
             concept.setText(medCondition);
             condition.setCode(concept);
@@ -281,16 +288,25 @@ public class FHIRUtils {
     }
 
     public static Medication getMedication(Medicine med) {
+        String id = Utils.randomId();
+        Medication medication = (Utils.randomBool() ? med.getNamedMedication() : med.getCodedMedication()).copy();
+        medication.setId(id);
+        return medication;
+    }
+
+    /**
+     * @param coded whether the medication is coded, or only named
+     */
+    public static Medication createMedication(Medicine med, boolean coded) {
         Medication medication = new Medication();
-        medication.setId(UUID.randomUUID().toString());
         CodeableConcept concept = new CodeableConcept();
-        if (Utils.randomBool()) {
-            concept.setText(med.getName());
-        } else {
+        if (coded) {
             Coding coding = concept.addCoding();
             coding.setSystem(EKA_ACT_SYSTEM);
             coding.setCode(med.getCode());
             coding.setDisplay(med.getName());
+        } else {
+            concept.setText(med.getName());
         }
         medication.setCode(concept);
         return medication;
@@ -298,7 +314,7 @@ public class FHIRUtils {
 
     public static Immunization getImmunization(Vaccine vaccine, Date date, String orgPrefix) {
         Immunization immunization = new Immunization();
-        immunization.setId(UUID.randomUUID().toString());
+        immunization.setId(Utils.randomId());
         CodeableConcept concept = new CodeableConcept();
         if (Utils.randomBool()) {
             concept.setText(vaccine.getName());
@@ -314,11 +330,11 @@ public class FHIRUtils {
         immunization.setVaccineCode(concept);
 
         if (Utils.randomBool()){
-            immunization.setLotNumber(RandomStringUtils.randomAlphanumeric(7).toUpperCase());
+            immunization.setLotNumber(Utils.randomAlphanumeric(7).toUpperCase());
         }
-        int randomInt = RandomUtils.nextInt(1, 4);
+        int randomInt = Utils.randomInt(1, 4);
         if (randomInt == 1) {
-            PositiveIntType doseNumber = new PositiveIntType(RandomUtils.nextInt(2, 5));
+            PositiveIntType doseNumber = new PositiveIntType(Utils.randomInt(2, 5));
             var protocolApplied = new Immunization.ImmunizationProtocolAppliedComponent(doseNumber);
             immunization.addProtocolApplied(protocolApplied);
         } else if (randomInt == 2) {
@@ -344,7 +360,7 @@ public class FHIRUtils {
                                                      Condition condition,
                                                      boolean useMedicationCodeableConcept) {
         MedicationRequest medReq = new MedicationRequest();
-        medReq.setId(UUID.randomUUID().toString());
+        medReq.setId(Utils.randomId());
         medReq.setStatus(MedicationRequest.MedicationRequestStatus.ACTIVE);
         medReq.setIntent(MedicationRequest.MedicationRequestIntent.ORDER);
         Reference authorRef = new Reference();
@@ -410,17 +426,13 @@ public class FHIRUtils {
     }
 
     public static Attachment getSurgicalReportAsAttachment(String title) throws IOException {
-        Attachment attachment = new Attachment();
-        attachment.setTitle(title);
-        attachment.setContentType("application/pdf");
-        attachment.setData(Utils.readFileContent("/sample-surgical-report-base64.txt"));
-        return attachment;
+        return AttachmentPayloads.attachment(AttachmentPayloads.SURGICAL_REPORT, title);
     }
 
     public static DocumentReference getReportAsDocReference(Practitioner author, String attachmentTitle) throws IOException {
         DocumentReference documentReference = new DocumentReference();
         documentReference.setStatus(Enumerations.DocumentReferenceStatus.CURRENT);
-        documentReference.setId(UUID.randomUUID().toString());
+        documentReference.setId(Utils.randomId());
         documentReference.setType(getDiagnosticReportType());
         CodeableConcept concept = new CodeableConcept();
         Coding coding = concept.addCoding();
@@ -461,7 +473,7 @@ public class FHIRUtils {
 
     public static Appointment createAppointment(Reference participantRef, Date apptDate) {
         Appointment app = new Appointment();
-        app.setId(UUID.randomUUID().toString());
+        app.setId(Utils.randomId());
         app.setStart(apptDate);
         if (randomBool()) {
             app.setStatus(Appointment.AppointmentStatus.PROPOSED);
@@ -493,21 +505,12 @@ public class FHIRUtils {
     }
 
     public static Resource findResourceInBundleById(Bundle bundle, ResourceType resourceType, String id) {
-        var resources = bundle.getEntry().stream().filter(entry -> {
-            if (entry.getResource().getResourceType().equals(resourceType)) {
-                return entry.getResource().getId().equals(id);
-            }
-            return false;
-        }).collect(Collectors.toList());
-        if (!resources.isEmpty()) {
-            return resources.get(0).getResource();
-        }
-        return null;
+        return BundleIndex.of(bundle).find(resourceType, id);
     }
 
     public static Condition createCondition(SimpleCondition randomComplaint, Date date) {
         Condition condition = new Condition();
-        condition.setId(UUID.randomUUID().toString());
+        condition.setId(Utils.randomId());
         if (randomBool()) {
             condition.setClinicalStatus(
                     conceptWith(
@@ -536,7 +539,7 @@ public class FHIRUtils {
 
     public static Condition createEncounterDiagnosis(SimpleCondition randomComplaint, Date date) {
         Condition condition = new Condition();
-        condition.setId(UUID.randomUUID().toString());
+        condition.setId(Utils.randomId());
         if (randomBool()) {
             condition.setClinicalStatus(
                     conceptWith(
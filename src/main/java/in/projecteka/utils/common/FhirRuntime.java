@@ -0,0 +1,64 @@
+package in.projecteka.utils.common;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.AllergyIntolerance;
+import org.hl7.fhir.r4.model.Appointment;
+import org.hl7.fhir.r4.model.Binary;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CarePlan;
+import org.hl7.fhir.r4.model.Composition;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.Coverage;
+import org.hl7.fhir.r4.model.CoverageEligibilityRequest;
+import org.hl7.fhir.r4.model.CoverageEligibilityResponse;
+import org.hl7.fhir.r4.model.DiagnosticReport;
+import org.hl7.fhir.r4.model.DocumentReference;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Immunization;
+import org.hl7.fhir.r4.model.Medication;
+import org.hl7.fhir.r4.model.MedicationRequest;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.hl7.fhir.r4.model.Procedure;
+import org.hl7.fhir.r4.model.ValueSet;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Process wide holder of the R4 {@link FhirContext}. Creating a context scans the model and is expensive,
+ * so it is created once and shared. Parsers are not thread-safe, so each thread gets its own.
+ */
+public class FhirRuntime {
+    private static final List<Class<? extends IBaseResource>> GENERATED_RESOURCES = Arrays.asList(
+            Bundle.class, Composition.class, Patient.class, Practitioner.class, Organization.class,
+            Encounter.class, Observation.class, Condition.class, AllergyIntolerance.class,
+            Medication.class, MedicationRequest.class, Immunization.class, Procedure.class,
+            DiagnosticReport.class, DocumentReference.class, Binary.class, CarePlan.class, Appointment.class,
+            Coverage.class, CoverageEligibilityRequest.class, CoverageEligibilityResponse.class, ValueSet.class);
+
+    private static final FhirContext context = createContext();
+    private static final ThreadLocal<IParser> jsonParsers = ThreadLocal.withInitial(context::newJsonParser);
+
+    private static FhirContext createContext() {
+        FhirContext fhirContext = FhirContext.forR4();
+        //resolve definitions upfront, rather than on first encode/parse of each resource type
+        GENERATED_RESOURCES.forEach(fhirContext::getResourceDefinition);
+        return fhirContext;
+    }
+
+    public static FhirContext getContext() {
+        return context;
+    }
+
+    /**
+     * @return json parser bound to the calling thread. Do not hand it over to other threads.
+     */
+    public static IParser jsonParser() {
+        return jsonParsers.get();
+    }
+}
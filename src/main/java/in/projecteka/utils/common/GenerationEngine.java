@@ -0,0 +1,210 @@
+package in.projecteka.utils.common;
+
+import in.projecteka.utils.DocRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GenerationEngine {
+    private static volatile boolean reporting = true;
+    private static volatile Sequencer sequencer = null;
+    private static final ThreadLocal<Integer> currentIndex = new ThreadLocal<>();
+
+    public interface DocumentTask {
+        void generate(int index) throws Exception;
+    }
+
+    /**
+     * Puts the output of a run in index order, see {@link #setSequencer(Sequencer)}.
+     */
+    public interface Sequencer {
+        /**
+         * A run starts, at index 0.
+         */
+        void begin();
+
+        /**
+         * Everything of the given index has been generated.
+         */
+        void completed(int index) throws Exception;
+    }
+
+    /**
+     * Whether every run prints its throughput, on by default.
+     */
+    public static void setReporting(boolean reporting) {
+        GenerationEngine.reporting = reporting;
+    }
+
+    /**
+     * With a sequencer, workers pick up indexes one at a time in ascending order, rather than splitting the range
+     * upfront, and the sequencer is told as every index completes. Documents then only wait for the few indexes
+     * still in progress before them to be written in order. Null (the default) turns sequencing off.
+     */
+    public static void setSequencer(Sequencer sequencer) {
+        GenerationEngine.sequencer = sequencer;
+    }
+
+    /**
+     * @return index the calling worker is generating, -1 outside of a run
+     */
+    public static int currentIndex() {
+        Integer index = currentIndex.get();
+        return index == null ? -1 : index;
+    }
+
+    public static void run(DocRequest request, DocumentTask task) throws Exception {
+        run(request.getNumber(), request.getParallelism(), task);
+    }
+
+    /**
+     * Runs the task for every index in [0, number). The range is split across a fork-join pool
+     * of the given size; each index is still processed exactly once, so anything derived from
+     * the index (like the document date, or the random stream of a seeded run) stays the same
+     * regardless of the number of workers.
+     */
+    public static void run(int number, int parallelism, DocumentTask task) throws Exception {
+        run(number, parallelism, "documents", task);
+    }
+
+    /**
+     * @param unit what a single index stands for, used in the report (e.g. "patients")
+     */
+    public static void run(int number, int parallelism, String unit, DocumentTask task) throws Exception {
+        long start = System.nanoTime();
+        int workers = Math.max(1, Math.min(parallelism, number));
+        Sequencer order = sequencer;
+        if (order != null) {
+            order.begin();
+        }
+        if (workers == 1) {
+            for (int i = 0; i < number; i++) {
+                generate(task, i, order);
+            }
+        } else if (order != null) {
+            runInOrder(number, workers, task, order);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(workers);
+            try {
+                int threshold = Math.max(1, number / (workers * 8));
+                pool.invoke(new RangeAction(task, 0, number, threshold));
+            } catch (CompletionException e) {
+                //fork-join may re-wrap exceptions thrown on other workers
+                Throwable cause = e;
+                while (cause instanceof CompletionException && cause.getCause() != null) {
+                    cause = cause.getCause();
+                }
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            } finally {
+                pool.shutdown();
+            }
+        }
+        if (reporting) {
+            report(number, unit, workers, System.nanoTime() - start);
+        }
+    }
+
+    private static void runInOrder(int number, int workers, DocumentTask task, Sequencer order) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Callable<Void>> claimers = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            claimers.add(() -> {
+                int index;
+                while (!failed.get() && (index = next.getAndIncrement()) < number) {
+                    try {
+                        generate(task, index, order);
+                    } catch (Exception e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }
+                return null;
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            for (Future<Void> claimer : pool.invokeAll(claimers)) {
+                try {
+                    claimer.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void generate(DocumentTask task, int index) throws Exception {
+        generate(task, index, null);
+    }
+
+    private static void generate(DocumentTask task, int index, Sequencer order) throws Exception {
+        RandomSource.beginDocument(index);
+        currentIndex.set(index);
+        try {
+            task.generate(index);
+        } finally {
+            currentIndex.remove();
+        }
+        if (order != null) {
+            order.completed(index);
+        }
+    }
+
+    private static void report(int number, String unit, int workers, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        double rate = seconds > 0 ? number / seconds : number;
+        System.out.println(String.format("Generated %d %s in %.2f s (%.1f %s/sec) using %d worker(s)",
+                number, unit, seconds, rate, unit, workers));
+    }
+
+    private static class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final DocumentTask task;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        RangeAction(DocumentTask task, int from, int to, int threshold) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        generate(task, i);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeAction(task, from, mid, threshold), new RangeAction(task, mid, to, threshold));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package in.projecteka.utils.common;
+
+import org.hl7.fhir.r4.model.Organization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Providers (hips) and payers, by prefix: the name of their json, like max for orgs/max.json. Each organization is
+ * parsed once and every caller gets its own copy of it, so bundles can not affect each other. Bundled organizations
+ * are parsed on first use; a directory given to {@link #configure(Path)} adds (or replaces) organizations with all
+ * of its json files, parsed upfront.
+ */
+public class OrganizationRegistry {
+    private static final String BUNDLED = "/orgs/";
+    private static final String EXTENSION = ".json";
+
+    private static final Map<String, Organization> bundled = new ConcurrentHashMap<>();
+    private static volatile Map<String, Organization> external = Collections.emptyMap();
+
+    /**
+     * @param directory if given, every *.json in it is loaded as the organization named after the file
+     */
+    public static void configure(Path directory) throws IOException {
+        if (directory == null) {
+            external = Collections.emptyMap();
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.filter(path -> Files.isRegularFile(path) && path.getFileName().toString().endsWith(EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        if (files.isEmpty()) {
+            throw new RuntimeException("No organization json files found in " + directory);
+        }
+        //parsers are per thread, so the files are parsed on all cores
+        Map<String, Organization> organizations = files.parallelStream()
+                .collect(Collectors.toConcurrentMap(OrganizationRegistry::prefix, OrganizationRegistry::parse));
+        external = Collections.unmodifiableMap(new HashMap<>(organizations));
+        System.out.println(String.format("Loaded %d organizations from %s", organizations.size(), directory));
+    }
+
+    /**
+     * @return a copy of the organization with the given prefix
+     */
+    public static Organization get(String prefix) {
+        Organization organization = external.get(prefix);
+        if (organization == null) {
+            organization = bundled.computeIfAbsent(prefix, OrganizationRegistry::loadBundled);
+        }
+        return organization.copy();
+    }
+
+    private static Organization loadBundled(String prefix) {
+        try (InputStream stream = OrganizationRegistry.class.getResourceAsStream(BUNDLED + prefix + EXTENSION)) {
+            if (stream == null) {
+                throw new RuntimeException("Unknown organization: " + prefix);
+            }
+            return parse(new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Can not read organization: " + prefix, e);
+        }
+    }
+
+    private static Organization parse(Path file) {
+        try {
+            return parse(Files.readString(file));
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Invalid organization json: " + file, e);
+        }
+    }
+
+    private static Organization parse(String json) {
+        return FhirRuntime.jsonParser().parseResource(Organization.class, json);
+    }
+
+    private static String prefix(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - EXTENSION.length());
+    }
+}
@@ -0,0 +1,86 @@
+package in.projecteka.utils.common;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Source of all randomness used while generating data.
+ * <p>
+ * Unseeded (the default), values come from {@link ThreadLocalRandom}: no allocation and no contention between workers.
+ * With a seed, every document draws from its own stream derived from (seed, document index), so the same seed
+ * reproduces the same dataset irrespective of the number of workers or the order documents are picked up in.
+ */
+public class RandomSource {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static volatile Long seed = null;
+    private static final ThreadLocal<SplittableRandom> streams = new ThreadLocal<>();
+
+    public static void setSeed(Long seed) {
+        RandomSource.seed = seed;
+    }
+
+    public static boolean isSeeded() {
+        return seed != null;
+    }
+
+    /**
+     * Switches the calling thread to the stream of the given document. No-op when unseeded.
+     */
+    public static void beginDocument(long index) {
+        Long current = seed;
+        if (current != null) {
+            streams.set(new SplittableRandom(mix64(current + GOLDEN_GAMMA * (index + 1))));
+        }
+    }
+
+    public static int nextInt(int min, int max) {
+        SplittableRandom stream = stream();
+        return stream != null ? stream.nextInt(min, max) : ThreadLocalRandom.current().nextInt(min, max);
+    }
+
+    public static boolean nextBoolean() {
+        SplittableRandom stream = stream();
+        return stream != null ? stream.nextBoolean() : ThreadLocalRandom.current().nextBoolean();
+    }
+
+    public static long nextLong() {
+        SplittableRandom stream = stream();
+        return stream != null ? stream.nextLong() : ThreadLocalRandom.current().nextLong();
+    }
+
+    public static double nextDouble() {
+        SplittableRandom stream = stream();
+        return stream != null ? stream.nextDouble() : ThreadLocalRandom.current().nextDouble();
+    }
+
+    /**
+     * Random (version 4) UUID drawn from the current stream.
+     */
+    public static UUID nextUUID() {
+        long msb = (nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+        long lsb = (nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    private static SplittableRandom stream() {
+        Long current = seed;
+        if (current == null) {
+            return null;
+        }
+        SplittableRandom stream = streams.get();
+        if (stream == null) {
+            //outside of a document, e.g. while loading value sets
+            stream = new SplittableRandom(mix64(current));
+            streams.set(stream);
+        }
+        return stream;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
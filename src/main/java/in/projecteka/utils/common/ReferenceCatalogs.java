@@ -0,0 +1,88 @@
+package in.projecteka.utils.common;
+
+import in.projecteka.utils.data.model.Doctor;
+import in.projecteka.utils.data.model.Medicine;
+import in.projecteka.utils.data.model.Patient;
+import in.projecteka.utils.data.model.Vaccine;
+import lombok.SneakyThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * The doctors, medicines, vaccines and named patients documents are generated from. Each catalog is parsed once,
+ * on first use, and shared by all generators and workers. By default the bundled properties files are used; a
+ * directory given to {@link #configure(Path)} may replace any of them with a file of the same name, of any size.
+ */
+public class ReferenceCatalogs {
+    private static final String DOCTORS = "practitioners.properties";
+    private static final String MEDICINES = "medications.properties";
+    private static final String VACCINES = "immunization.properties";
+    private static final String PATIENTS = "patients.properties";
+
+    private static volatile Path directory = null;
+    private static volatile Catalog<Doctor> doctors;
+    private static volatile Catalog<Medicine> medicines;
+    private static volatile Catalog<Vaccine> vaccines;
+    private static volatile Catalog<Patient> patients;
+
+    /**
+     * @param directory if given, catalog files in it are used instead of the bundled ones
+     */
+    public static synchronized void configure(Path directory) throws IOException {
+        if (directory != null && !Files.isDirectory(directory)) {
+            throw new RuntimeException("Catalog directory does not exist: " + directory);
+        }
+        ReferenceCatalogs.directory = directory;
+        doctors = load(DOCTORS, Doctor::parse);
+        medicines = load(MEDICINES, Medicine::parse);
+        vaccines = load(VACCINES, Vaccine::parse);
+        patients = load(PATIENTS, Patient::parse);
+    }
+
+    public static Catalog<Doctor> doctors() {
+        ensureLoaded();
+        return doctors;
+    }
+
+    public static Catalog<Medicine> medicines() {
+        ensureLoaded();
+        return medicines;
+    }
+
+    public static Catalog<Vaccine> vaccines() {
+        ensureLoaded();
+        return vaccines;
+    }
+
+    /**
+     * Patients documents are generated for by name (-Dname), keyed by that name.
+     */
+    public static Catalog<Patient> patients() {
+        ensureLoaded();
+        return patients;
+    }
+
+    @SneakyThrows
+    private static void ensureLoaded() {
+        if (patients == null) {
+            synchronized (ReferenceCatalogs.class) {
+                if (patients == null) {
+                    configure(directory);
+                }
+            }
+        }
+    }
+
+    private static <T> Catalog<T> load(String fileName, Function<String, T> parser) throws IOException {
+        Path dir = directory;
+        if (dir != null && Files.isRegularFile(dir.resolve(fileName))) {
+            Catalog<T> catalog = Catalog.load(dir.resolve(fileName), parser);
+            System.out.println(String.format("Loaded %d entries from catalog:%s", catalog.size(), dir.resolve(fileName)));
+            return catalog;
+        }
+        return Catalog.load("/" + fileName, parser);
+    }
+}
@@ -0,0 +1,126 @@
+package in.projecteka.utils.common;
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Encodes resources as json straight into files, without materialising the document as a String first.
+ * Every thread reuses its own output buffer, so writing a document only allocates what the parser needs.
+ */
+public class ResourceEncoder {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final ThreadLocal<ChannelOutputStream> streams =
+            ThreadLocal.withInitial(() -> new ChannelOutputStream(BUFFER_SIZE));
+    private static final ThreadLocal<ByteArrayOutputStream> byteStreams =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(BUFFER_SIZE));
+
+    /**
+     * @return the json encoded resource, for sinks that need to know its size before writing it
+     */
+    public static byte[] encode(IBaseResource resource) throws IOException {
+        ByteArrayOutputStream out = byteStreams.get();
+        out.reset();
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        FhirRuntime.jsonParser().encodeResourceToWriter(resource, writer);
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    /**
+     * @return number of bytes written
+     */
+    public static long writeToFile(Path path, IBaseResource resource) throws IOException {
+        ChannelOutputStream out = streams.get();
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.attach(channel);
+            try {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                FhirRuntime.jsonParser().encodeResourceToWriter(resource, writer);
+                writer.flush();
+                return out.getCount();
+            } finally {
+                out.detach();
+            }
+        }
+    }
+
+    /**
+     * Buffers bytes in a fixed array and drains it to whichever channel is currently attached.
+     */
+    private static class ChannelOutputStream extends OutputStream {
+        private final byte[] buffer;
+        private final ByteBuffer view;
+        private int position = 0;
+        private long count = 0;
+        private WritableByteChannel channel;
+
+        ChannelOutputStream(int size) {
+            buffer = new byte[size];
+            view = ByteBuffer.wrap(buffer);
+        }
+
+        void attach(WritableByteChannel channel) {
+            this.channel = channel;
+            this.position = 0;
+            this.count = 0;
+        }
+
+        void detach() {
+            this.channel = null;
+            this.position = 0;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (position == buffer.length) {
+                drain();
+            }
+            buffer[position++] = (byte) b;
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+            while (len > 0) {
+                if (position == buffer.length) {
+                    drain();
+                }
+                int chunk = Math.min(len, buffer.length - position);
+                System.arraycopy(b, off, buffer, position, chunk);
+                position += chunk;
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            view.clear().limit(position);
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+            position = 0;
+        }
+    }
+}
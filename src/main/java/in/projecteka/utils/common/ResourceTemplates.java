@@ -0,0 +1,19 @@
+package in.projecteka.utils.common;
+
+import org.hl7.fhir.r4.model.Resource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of resources parsed from embedded json fixtures (observations, allergies etc).
+ * Each fixture is parsed once into a prototype; callers get a deep copy they are free to modify.
+ */
+public class ResourceTemplates {
+    private static final Map<String, Resource> prototypes = new ConcurrentHashMap<>();
+
+    public static <T extends Resource> T copyOf(Class<T> type, String json) {
+        Resource prototype = prototypes.computeIfAbsent(json, source -> FhirRuntime.jsonParser().parseResource(type, source));
+        return type.cast(prototype.copy());
+    }
+}
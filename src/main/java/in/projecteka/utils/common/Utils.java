@@ -1,5 +1,6 @@
 package in.projecteka.utils.common;
 
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.Meta;
 
 import java.io.BufferedWriter;
@@ -7,21 +8,19 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.Date;
 import java.util.Properties;
-import java.util.Random;
 
 public class Utils {
+    private static final String ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
     public static boolean isBlank(String value) {
         return value == null || "".equals(value.trim());
     }
 
     public static boolean randomBool() {
-        Random random = new Random();
-        return random.nextBoolean();
+        return RandomSource.nextBoolean();
     }
 
     public static Meta getMeta(Date forDate) {
@@ -31,10 +30,19 @@ public class Utils {
     }
 
     public static int randomInt(int min, int max) {
-        Random random = new Random();
-        return random.ints(min, max)
-                .findFirst()
-                .getAsInt();
+        return RandomSource.nextInt(min, max);
+    }
+
+    public static String randomId() {
+        return RandomSource.nextUUID().toString();
+    }
+
+    public static String randomAlphanumeric(int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = ALPHANUMERIC.charAt(RandomSource.nextInt(0, ALPHANUMERIC.length()));
+        }
+        return new String(chars);
     }
 
     public static Properties loadFromFile(String filename) throws IOException {
@@ -55,46 +63,47 @@ public class Utils {
         }
     }
 
+    /**
+     * Encodes the resource as json directly into the file.
+     * @return number of bytes written
+     */
+    public static long saveToFile(Path path, IBaseResource resource) throws Exception {
+        try {
+            return ResourceEncoder.writeToFile(path, resource);
+        } catch (IOException ex) {
+            throw new Exception(ex);
+        }
+    }
+
     public static String formatDate(Date date, String format) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat(format);
-        return dateFormat.format(date);
+        return Dates.format(date, format);
     }
 
-    public static Date getNextDate(LocalDateTime dateTime, int i) {
-        if (i == 0) {
-            return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
-        }
-        LocalDateTime newDateTime = dateTime.plusDays(i*2);
-        return Date.from(newDateTime.atZone(ZoneId.systemDefault()).toInstant());
+    /**
+     * @return date of the i-th document of a series, documents being 2 days apart
+     */
+    public static Date getNextDate(Date fromDate, int i) {
+        return Dates.plusDays(fromDate, i * 2L);
     }
 
+    public static Date getNextDate(LocalDateTime dateTime, int i) {
+        return getNextDate(Date.from(dateTime.atZone(Dates.getZone()).toInstant()), i);
+    }
 
     public static Date getPastDate(Date date, int days) {
-        LocalDateTime localDateTime = date.toInstant()
-                .atZone(ZoneId.systemDefault())
-                .toLocalDateTime();
-        LocalDateTime newDateTime = localDateTime.minusDays(days);
-        return Date.from(newDateTime.atZone(ZoneId.systemDefault()).toInstant());
+        return Dates.plusDays(date, -days);
     }
 
     public static Date getFutureDate(Date date, int days) {
-        LocalDateTime localDateTime = date.toInstant()
-                .atZone(ZoneId.systemDefault())
-                .toLocalDateTime();
-        LocalDateTime newDateTime = localDateTime.plusDays(days);
-        return Date.from(newDateTime.atZone(ZoneId.systemDefault()).toInstant());
+        return Dates.plusDays(date, days);
     }
+
     public static Date getFutureDate(LocalDateTime date, int days) {
-        LocalDateTime newDateTime = date.plusDays(days);
-        return Date.from(newDateTime.atZone(ZoneId.systemDefault()).toInstant());
+        return getFutureDate(Date.from(date.atZone(Dates.getZone()).toInstant()), days);
     }
 
     public static Date getFutureTime(Date date, int minutes) {
-        LocalDateTime localDateTime = date.toInstant()
-                .atZone(ZoneId.systemDefault())
-                .toLocalDateTime();
-        LocalDateTime newDateTime = localDateTime.plusMinutes(minutes);
-        return Date.from(newDateTime.atZone(ZoneId.systemDefault()).toInstant());
+        return Dates.plusMinutes(date, minutes);
     }
 
     public static String removeFileExtension(String filename, boolean removeAllExtensions) {
@@ -1,10 +1,12 @@
 package in.projecteka.utils.data;
 
-import ca.uhn.fhir.context.FhirContext;
-import ca.uhn.fhir.parser.IParser;
 import in.projecteka.utils.DocRequest;
-import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.common.BundleIndex;
 import in.projecteka.utils.common.FHIRUtils;
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.common.OrganizationRegistry;
+import in.projecteka.utils.common.ResourceTemplates;
 import in.projecteka.utils.common.Utils;
 import in.projecteka.utils.data.model.SimpleDiagnosticTest;
 import in.projecteka.utils.data.model.Doctor;
@@ -21,67 +23,48 @@ import org.hl7.fhir.r4.model.Practitioner;
 import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.ResourceType;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.Collections;
 import java.util.Date;
-import java.util.List;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
 import static in.projecteka.utils.common.Utils.randomBool;
 
-public class DiagnosticReportGenerator implements DocumentGenerator {
-    private Properties doctors;
-    private Properties patients;
-
+public class DiagnosticReportGenerator implements BundleGenerator {
     @Override
     public void init() throws Exception {
-        doctors = Utils.loadFromFile("/practitioners.properties");
-        patients = Utils.loadFromFile("/patients.properties");
     }
 
     @Override
     public void execute(DocRequest request) throws Exception {
-        FhirContext fhirContext = FhirContext.forR4();
-        LocalDateTime dateTime = request.getFromDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        for (int i = 0; i < request.getNumber(); i++) {
-            Date date = Utils.getNextDate(dateTime, i);
-            Bundle bundle = createDiagnosticReportBundle(date, request.getPatientName(), request.getProvName(), fhirContext.newJsonParser(), request.getPatientId());
-            String encodedString = fhirContext.newJsonParser().encodeResourceToString(bundle);
-            List<Bundle.BundleEntryComponent> patientEntries =
-                    bundle.getEntry().stream()
-                            .filter(e -> e.getResource().getResourceType().equals(ResourceType.Patient))
-                            .collect(Collectors.toList());
-            Bundle.BundleEntryComponent patientEntry = patientEntries.get(0);
+        GenerationEngine.run(request, i -> {
+            Date date = Utils.getNextDate(request.getFromDate(), i);
+            Bundle bundle = buildBundle(request, date);
+            String patientId = BundleIndex.of(bundle).getPatient().getId();
             String fileName = String.format("%s%sDiagnosticReportDoc%s.json",
                     request.getProvName().toUpperCase(),
-                    patientEntry.getResource().getId(),
+                    patientId,
                     Utils.formatDate(date, "yyyyMMdd"));
-            Path path = Paths.get(request.getOutPath().toString(), fileName);
-            System.out.println("Saving DiagnosticReport to file:" + path.toString());
-            Utils.saveToFile(path, encodedString);
-            //System.out.println(encodedString);
-        }
+            request.getSink().write(fileName, bundle);
+        });
+    }
+
+    @Override
+    public Bundle createBundle(DocRequest request, Date date) throws Exception {
+        return createDiagnosticReportBundle(date, FHIRUtils.getPatientResource(request), request.getProvName());
     }
 
-    private Bundle createDiagnosticReportBundle(Date date, String patientName, String hipPrefix, IParser parser, String patientId) throws Exception {
+    private Bundle createDiagnosticReportBundle(Date date, Patient patientResource, String hipPrefix) throws Exception {
         Bundle bundle = FHIRUtils.createBundle(date, hipPrefix);
-        Patient patientResource = FHIRUtils.getPatientResource(patientName, patientId, patients);
         Reference patientRef = new Reference();
         patientRef.setResource(patientResource);
         Composition reportDoc = new Composition();
-        reportDoc.setId(UUID.randomUUID().toString());
+        reportDoc.setId(Utils.randomId());
         reportDoc.setDate(bundle.getTimestamp());
         reportDoc.setIdentifier(FHIRUtils.getIdentifier(reportDoc.getId(), hipPrefix, "document"));
         reportDoc.setStatus(Composition.CompositionStatus.FINAL);
         reportDoc.setType(FHIRUtils.getDiagnosticReportType());
         reportDoc.setTitle("Diagnostic Report Document");
         FHIRUtils.addToBundleEntry(bundle, reportDoc, false);
-        Practitioner author = FHIRUtils.createAuthor(hipPrefix, doctors);
+        Practitioner author = FHIRUtils.createAuthor(hipPrefix);
         FHIRUtils.addToBundleEntry(bundle, author, false);
         reportDoc.addAuthor().setResource(author);
         if (randomBool()) {
@@ -100,7 +83,7 @@ public class DiagnosticReportGenerator implements DocumentGenerator {
         reportDoc.setEncounter(referenceToResource);
 
         DiagnosticReport report = new DiagnosticReport();
-        report.setId(UUID.randomUUID().toString());
+        report.setId(Utils.randomId());
         report.setStatus(DiagnosticReport.DiagnosticReportStatus.FINAL);
         section.getEntry().add(FHIRUtils.getReferenceToResource(report));
         FHIRUtils.addToBundleEntry(bundle, report, false);
@@ -114,13 +97,13 @@ public class DiagnosticReportGenerator implements DocumentGenerator {
             report.setEffective(FHIRUtils.getDateTimeType(date));
         }
 
-        Organization organization = parser.parseResource(Organization.class, FHIRUtils.loadOrganization(hipPrefix));
+        Organization organization = OrganizationRegistry.get(hipPrefix);
         FHIRUtils.addToBundleEntry(bundle, organization, true);
         report.setPerformer(Collections.singletonList(FHIRUtils.getReferenceToResource(organization)));
 
         Practitioner interpreter = author;
         if (randomBool()) {
-            interpreter = FHIRUtils.createAuthor(hipPrefix, doctors);
+            interpreter = FHIRUtils.createAuthor(hipPrefix);
             Practitioner doctor = (Practitioner) FHIRUtils.findResourceInBundleById(bundle, ResourceType.Practitioner, interpreter.getId());
             if (doctor == null) {
                 FHIRUtils.addToBundleEntry(bundle, interpreter, false);
@@ -139,10 +122,10 @@ public class DiagnosticReportGenerator implements DocumentGenerator {
             //presented form
             report.getPresentedForm().add(FHIRUtils.getSurgicalReportAsAttachment("Surgical Pathology Report"));
             if (randomBool()) {
-                addObservvationsToBundle(parser, bundle, report);
+                addObservvationsToBundle(bundle, report);
             }
         } else {
-            addObservvationsToBundle(parser, bundle, report);
+            addObservvationsToBundle(bundle, report);
         }
 
         if (randomBool()) {
@@ -154,9 +137,9 @@ public class DiagnosticReportGenerator implements DocumentGenerator {
         return bundle;
     }
 
-    private void addObservvationsToBundle(IParser parser, Bundle bundle, DiagnosticReport report) {
-        Observation observation = parser.parseResource(Observation.class, Obs.getObservationResString());
-        observation.setId(UUID.randomUUID().toString());
+    private void addObservvationsToBundle(Bundle bundle, DiagnosticReport report) {
+        Observation observation = ResourceTemplates.copyOf(Observation.class, Obs.getObservationResString());
+        observation.setId(Utils.randomId());
         FHIRUtils.addToBundleEntry(bundle, observation, true);
         report.addResult(FHIRUtils.getReferenceToResource(observation));
     }
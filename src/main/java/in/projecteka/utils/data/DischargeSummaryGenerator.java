@@ -12,7 +12,6 @@ import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.Type;
 
-import java.time.LocalDateTime;
 import java.util.Date;
 
 import static in.projecteka.utils.common.FHIRUtils.createEncounterDiagnosis;
@@ -26,8 +25,8 @@ public class DischargeSummaryGenerator extends OPConsultationGenerator {
     }
 
     @Override
-    protected Date getCompositionDate(LocalDateTime dateTime, int docIndex) {
-        return Utils.getFutureDate(dateTime, docIndex*10);
+    protected Date getCompositionDate(Date fromDate, int docIndex) {
+        return Utils.getFutureDate(fromDate, docIndex*10);
     }
 
     @Override
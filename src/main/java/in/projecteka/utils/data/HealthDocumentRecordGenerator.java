@@ -1,9 +1,10 @@
 package in.projecteka.utils.data;
 
-import ca.uhn.fhir.context.FhirContext;
 import in.projecteka.utils.DocRequest;
-import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.common.BundleIndex;
 import in.projecteka.utils.common.FHIRUtils;
+import in.projecteka.utils.common.GenerationEngine;
 import in.projecteka.utils.common.Utils;
 import in.projecteka.utils.data.model.Doctor;
 import org.hl7.fhir.r4.model.Bundle;
@@ -14,58 +15,39 @@ import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Practitioner;
 import org.hl7.fhir.r4.model.Reference;
-import org.hl7.fhir.r4.model.ResourceType;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.Date;
-import java.util.List;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.stream.Collectors;
-
-public class HealthDocumentRecordGenerator implements DocumentGenerator {
-    private Properties doctors;
-    private Properties patients;
 
+public class HealthDocumentRecordGenerator implements BundleGenerator {
     @Override
     public void init() throws Exception {
-        doctors = Utils.loadFromFile("/practitioners.properties");
-        patients = Utils.loadFromFile("/patients.properties");
     }
 
     @Override
     public void execute(DocRequest request) throws Exception {
-        FhirContext fhirContext = FhirContext.forR4();
-        LocalDateTime dateTime = request.getFromDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        for (int i = 0; i < request.getNumber(); i++) {
-            Date date = Utils.getNextDate(dateTime, i);
-            Bundle bundle = createHealthDocumentRecordBundle(date, request.getPatientName(), request.getProvName(), request.getPatientId());
-            String encodedString = fhirContext.newJsonParser().encodeResourceToString(bundle);
-            List<Bundle.BundleEntryComponent> patientEntries =
-                    bundle.getEntry().stream()
-                            .filter(e -> e.getResource().getResourceType().equals(ResourceType.Patient))
-                            .collect(Collectors.toList());
-            Bundle.BundleEntryComponent patientEntry = patientEntries.get(0);
+        GenerationEngine.run(request, i -> {
+            Date date = Utils.getNextDate(request.getFromDate(), i);
+            Bundle bundle = buildBundle(request, date);
+            String patientId = BundleIndex.of(bundle).getPatient().getId();
             String fileName = String.format("%s%sHealthDocumentRecordDoc%s.json",
                     request.getProvName().toUpperCase(),
-                    patientEntry.getResource().getId(),
+                    patientId,
                     Utils.formatDate(date, "yyyyMMdd"));
-            Path path = Paths.get(request.getOutPath().toString(), fileName);
-            System.out.println("Saving HealthDocumentRecord to file:" + path.toString());
-            Utils.saveToFile(path, encodedString);
-        }
+            request.getSink().write(fileName, bundle);
+        });
+    }
+
+    @Override
+    public Bundle createBundle(DocRequest request, Date date) throws Exception {
+        return createHealthDocumentRecordBundle(date, FHIRUtils.getPatientResource(request), request.getProvName());
     }
 
-    private Bundle createHealthDocumentRecordBundle(Date date, String patientName, String hipPrefix, String patientId) throws Exception {
+    private Bundle createHealthDocumentRecordBundle(Date date, Patient patientResource, String hipPrefix) throws Exception {
         Bundle bundle = FHIRUtils.createBundle(date, hipPrefix);
-        Patient patientResource = FHIRUtils.getPatientResource(patientName, patientId, patients);
         Reference patientRef = createPatientReference(patientResource);
 
         Composition healthDocumentRecordDoc = new Composition();
-        healthDocumentRecordDoc.setId(UUID.randomUUID().toString());
+        healthDocumentRecordDoc.setId(Utils.randomId());
         healthDocumentRecordDoc.setDate(bundle.getTimestamp());
         healthDocumentRecordDoc.setIdentifier(FHIRUtils.getIdentifier(healthDocumentRecordDoc.getId(), hipPrefix, "document"));
         healthDocumentRecordDoc.setStatus(Composition.CompositionStatus.FINAL);
@@ -74,7 +56,7 @@ public class HealthDocumentRecordGenerator implements DocumentGenerator {
         healthDocumentRecordDoc.setTitle("Health Document Record");
         FHIRUtils.addToBundleEntry(bundle, healthDocumentRecordDoc, false);
 
-        Practitioner author = FHIRUtils.createAuthor(hipPrefix, doctors);
+        Practitioner author = FHIRUtils.createAuthor(hipPrefix);
         FHIRUtils.addToBundleEntry(bundle, author, false);
         healthDocumentRecordDoc.addAuthor().setResource(author);
         if (Utils.randomBool()) {
@@ -1,9 +1,12 @@
 package in.projecteka.utils.data;
 
-import ca.uhn.fhir.context.FhirContext;
 import in.projecteka.utils.DocRequest;
-import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.common.BundleIndex;
 import in.projecteka.utils.common.FHIRUtils;
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.common.OrganizationRegistry;
+import in.projecteka.utils.common.ReferenceCatalogs;
 import in.projecteka.utils.common.Utils;
 import in.projecteka.utils.data.model.Doctor;
 import in.projecteka.utils.data.model.Vaccine;
@@ -17,59 +20,37 @@ import org.hl7.fhir.r4.model.Organization;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Practitioner;
 import org.hl7.fhir.r4.model.Reference;
-import org.hl7.fhir.r4.model.ResourceType;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.Date;
-import java.util.List;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.stream.Collectors;
-
-public class ImmunizationGenerator implements DocumentGenerator {
-    private Properties immunizationProps;
-    private Properties doctors;
-    private Properties patients;
 
+public class ImmunizationGenerator implements BundleGenerator {
     public void init() throws Exception {
-        immunizationProps = Utils.loadFromFile("/immunization.properties");
-        doctors = Utils.loadFromFile("/practitioners.properties");
-        patients = Utils.loadFromFile("/patients.properties");
     }
 
     public void execute(DocRequest request) throws Exception {
-        FhirContext fhirContext = FhirContext.forR4();
-        LocalDateTime dateTime = request.getFromDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        for (int i = 0; i < request.getNumber(); i++) {
-            Date date = Utils.getNextDate(dateTime, i);
-            Bundle bundle = createImmunizationBundle(date, request.getPatientName(), request.getProvName(), request.getPatientId());
-            String encodedString = fhirContext.newJsonParser().encodeResourceToString(bundle);
-            List<Bundle.BundleEntryComponent> patientEntries =
-                    bundle.getEntry().stream()
-                            .filter(e -> e.getResource().getResourceType().equals(ResourceType.Patient))
-                            .collect(Collectors.toList());
-            Bundle.BundleEntryComponent patientEntry = patientEntries.get(0);
+        GenerationEngine.run(request, i -> {
+            Date date = Utils.getNextDate(request.getFromDate(), i);
+            Bundle bundle = buildBundle(request, date);
+            String patientId = BundleIndex.of(bundle).getPatient().getId();
             String fileName = String.format("%s%sImmunizationDoc%s.json",
                     request.getProvName().toUpperCase(),
-                    patientEntry.getResource().getId(),
+                    patientId,
                     Utils.formatDate(date, "yyyyMMdd"));
-            Path path = Paths.get(request.getOutPath().toString(), fileName);
-            System.out.println("Saving Immunization to file:" + path.toString());
-            Utils.saveToFile(path, encodedString);
-            //System.out.println(encodedString);
-        }
+            request.getSink().write(fileName, bundle);
+        });
+    }
+
+    @Override
+    public Bundle createBundle(DocRequest request, Date date) throws Exception {
+        return createImmunizationBundle(date, FHIRUtils.getPatientResource(request), request.getProvName());
     }
 
-    private Bundle createImmunizationBundle(Date date, String patientName, String hipPrefix, String patientId) throws Exception {
+    private Bundle createImmunizationBundle(Date date, Patient patientResource, String hipPrefix) throws Exception {
         Bundle bundle = FHIRUtils.createBundle(date, hipPrefix);
-        Patient patientResource = FHIRUtils.getPatientResource(patientName, patientId, patients);
         Reference patientRef = createPatientReference(patientResource);
 
         Composition immunizationDoc = new Composition();
-        immunizationDoc.setId(UUID.randomUUID().toString());
+        immunizationDoc.setId(Utils.randomId());
         immunizationDoc.setDate(bundle.getTimestamp());
         immunizationDoc.setIdentifier(FHIRUtils.getIdentifier(immunizationDoc.getId(), hipPrefix, "document"));
         immunizationDoc.setStatus(Composition.CompositionStatus.FINAL);
@@ -78,7 +59,7 @@ public class ImmunizationGenerator implements DocumentGenerator {
         immunizationDoc.setTitle("Immunization");
         FHIRUtils.addToBundleEntry(bundle, immunizationDoc, false);
 
-        Practitioner author = FHIRUtils.createAuthor(hipPrefix, doctors);
+        Practitioner author = FHIRUtils.createAuthor(hipPrefix);
         FHIRUtils.addToBundleEntry(bundle, author, false);
         immunizationDoc.addAuthor().setResource(author);
         if (Utils.randomBool()) {
@@ -101,11 +82,10 @@ public class ImmunizationGenerator implements DocumentGenerator {
 
         int numberOfVaccines = Utils.randomInt(1, 3);
         for (int i = 0; i < numberOfVaccines; i++) {
-            int medIndex = Utils.randomInt(1, 10);
-            Vaccine vaccine = Vaccine.parse((String) immunizationProps.get(String.valueOf(medIndex)));
+            Vaccine vaccine = ReferenceCatalogs.vaccines().weighted();
             Immunization immunization = FHIRUtils.getImmunization(vaccine, bundle.getTimestamp(), hipPrefix);
 
-            Organization organization = FhirContext.forR4().newJsonParser().parseResource(Organization.class, FHIRUtils.loadOrganization(hipPrefix));
+            Organization organization = OrganizationRegistry.get(hipPrefix);
             FHIRUtils.addToBundleEntry(bundle, organization, true);
             immunization.setManufacturer(FHIRUtils.getReferenceToResource(organization));
 
@@ -1,10 +1,13 @@
 package in.projecteka.utils.data;
 
-import ca.uhn.fhir.context.FhirContext;
-import ca.uhn.fhir.parser.IParser;
 import in.projecteka.utils.DocRequest;
-import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.common.BundleIndex;
 import in.projecteka.utils.common.FHIRUtils;
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.common.OrganizationRegistry;
+import in.projecteka.utils.common.ReferenceCatalogs;
+import in.projecteka.utils.common.ResourceTemplates;
 import in.projecteka.utils.common.Utils;
 import in.projecteka.utils.data.model.Doctor;
 import in.projecteka.utils.data.model.Medicine;
@@ -39,17 +42,9 @@ import org.hl7.fhir.r4.model.Resource;
 import org.hl7.fhir.r4.model.ResourceType;
 import org.hl7.fhir.r4.model.Type;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
-import java.util.List;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
 import static in.projecteka.utils.common.FHIRUtils.getDiagnosticTestCode;
 import static in.projecteka.utils.common.FHIRUtils.getMedication;
@@ -57,48 +52,35 @@ import static in.projecteka.utils.common.FHIRUtils.getReportAsDocReference;
 import static in.projecteka.utils.common.FHIRUtils.getSurgicalReportAsAttachment;
 import static in.projecteka.utils.common.Utils.randomBool;
 
-public class OPConsultationGenerator implements DocumentGenerator {
-    private Properties doctors;
-    private Properties patients;
-    private Properties medicationProps;
-
+public class OPConsultationGenerator implements BundleGenerator {
     @Override
     public void init() throws Exception {
-        doctors = Utils.loadFromFile("/practitioners.properties");
-        patients = Utils.loadFromFile("/patients.properties");
-        medicationProps = Utils.loadFromFile("/medications.properties");
     }
 
     @Override
     public void execute(DocRequest request) throws Exception {
-        FhirContext fhirContext = FhirContext.forR4();
-        LocalDateTime dateTime = request.getFromDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        for (int i = 0; i < request.getNumber(); i++) {
-            Date docDate = getCompositionDate(dateTime, i);
-            Bundle bundle = createOPConsultationBundle(docDate, request.getPatientName(), request.getProvName(), fhirContext.newJsonParser(), request.getPatientId());
-            String encodedString = fhirContext.newJsonParser().encodeResourceToString(bundle);
-            List<Bundle.BundleEntryComponent> patientEntries =
-                    bundle.getEntry().stream()
-                            .filter(e -> e.getResource().getResourceType().equals(ResourceType.Patient))
-                            .collect(Collectors.toList());
-            Bundle.BundleEntryComponent patientEntry = patientEntries.get(0);
-            Path path = getFileSavePath(request, docDate, patientEntry);
-            System.out.println("Saving " + request.getType() +  " Document to file:" + path.toString());
-            Utils.saveToFile(path, encodedString);
-            //System.out.println(encodedString);
-        }
+        GenerationEngine.run(request, i -> {
+            Date docDate = getCompositionDate(request.getFromDate(), i);
+            Bundle bundle = buildBundle(request, docDate);
+            String patientId = BundleIndex.of(bundle).getPatient().getId();
+            request.getSink().write(getFileName(request, docDate, patientId), bundle);
+        });
+    }
+
+    @Override
+    public Bundle createBundle(DocRequest request, Date date) throws Exception {
+        return createOPConsultationBundle(date, FHIRUtils.getPatientResource(request), request.getProvName());
     }
 
-    protected Date getCompositionDate(LocalDateTime dateTime, int docIndex) {
-        return Utils.getFutureDate(dateTime, docIndex*2);
+    protected Date getCompositionDate(Date fromDate, int docIndex) {
+        return Utils.getFutureDate(fromDate, docIndex*2);
     }
 
-    private Path getFileSavePath(DocRequest request, Date date, Bundle.BundleEntryComponent patientEntry) {
-        String fileName = String.format("%s%s" + getDocBasicName() + "%s.json",
+    private String getFileName(DocRequest request, Date date, String patientId) {
+        return String.format("%s%s" + getDocBasicName() + "%s.json",
                 request.getProvName().toUpperCase(),
-                patientEntry.getResource().getId(),
+                patientId,
                 Utils.formatDate(date, "yyyyMMdd"));
-        return Paths.get(request.getOutPath().toString(), fileName);
     }
 
     protected String getDocBasicName() {
@@ -106,18 +88,18 @@ public class OPConsultationGenerator implements DocumentGenerator {
     }
 
     @SneakyThrows
-    private Bundle createOPConsultationBundle(Date date, String patientName, String hipPrefix, IParser jsonParser, String patientId) {
+    private Bundle createOPConsultationBundle(Date date, Patient patientResource, String hipPrefix) {
         Bundle bundle = FHIRUtils.createBundle(date, hipPrefix);
 
         Composition opDoc = new Composition();
-        opDoc.setId(UUID.randomUUID().toString());
+        opDoc.setId(Utils.randomId());
         opDoc.setDate(bundle.getTimestamp());
         opDoc.setIdentifier(FHIRUtils.getIdentifier(opDoc.getId(), hipPrefix, "document"));
         opDoc.setStatus(Composition.CompositionStatus.FINAL);
         opDoc.setType(getDocumentType());
         opDoc.setTitle(getCompositionDocumentTitle());
         FHIRUtils.addToBundleEntry(bundle, opDoc, false);
-        Practitioner author = FHIRUtils.createAuthor(hipPrefix, doctors);
+        Practitioner author = FHIRUtils.createAuthor(hipPrefix);
         FHIRUtils.addToBundleEntry(bundle, author, false);
         opDoc.addAuthor().setResource(author);
         if (randomBool()) {
@@ -125,12 +107,11 @@ public class OPConsultationGenerator implements DocumentGenerator {
         }
 
         if (randomBool()) {
-            Organization organization = jsonParser.parseResource(Organization.class, FHIRUtils.loadOrganization(hipPrefix));
+            Organization organization = OrganizationRegistry.get(hipPrefix);
             FHIRUtils.addToBundleEntry(bundle, organization, true);
             opDoc.setCustodian(FHIRUtils.getReferenceToResource(organization));
         }
 
-        Patient patientResource = FHIRUtils.getPatientResource(patientName, patientId, patients);
         FHIRUtils.addToBundleEntry(bundle, patientResource, false);
         opDoc.setSubject(FHIRUtils.getReferenceToPatient(patientResource));
 
@@ -140,7 +121,7 @@ public class OPConsultationGenerator implements DocumentGenerator {
         Reference referenceToResource = FHIRUtils.getReferenceToResource(encounter);
         opDoc.setEncounter(referenceToResource);
 
-        generateSections(hipPrefix, jsonParser, bundle, opDoc, patientResource);
+        generateSections(hipPrefix, bundle, opDoc, patientResource);
         return bundle;
     }
 
@@ -148,17 +129,17 @@ public class OPConsultationGenerator implements DocumentGenerator {
         return "OP Consultation Document";
     }
 
-    protected void generateSections(String hipPrefix, IParser jsonParser, Bundle bundle, Composition opDoc, Patient patientResource) {
+    protected void generateSections(String hipPrefix, Bundle bundle, Composition opDoc, Patient patientResource) {
         createChiefComplaintsSection(bundle, opDoc, patientResource);
-        createAllergiesSection(bundle, opDoc, patientResource, jsonParser);
+        createAllergiesSection(bundle, opDoc, patientResource);
         createMedicalHistorySection(bundle, opDoc, patientResource); //TODO
         createSymptomSection(bundle, opDoc, patientResource); //TODO
-        createObservationSection(bundle, opDoc, patientResource, jsonParser);
+        createObservationSection(bundle, opDoc, patientResource);
         createInvestigationSection(bundle, opDoc, patientResource); //TODO
         createPrescriptionSection(bundle, opDoc, patientResource);
         createDocumentsSection(bundle, opDoc, patientResource, hipPrefix);
         createProcedureSection(bundle, opDoc, patientResource, hipPrefix);
-        createDiagnosticReportSection(bundle, opDoc, patientResource, jsonParser, hipPrefix);
+        createDiagnosticReportSection(bundle, opDoc, patientResource, hipPrefix);
         createPlanSection(bundle, opDoc, patientResource);
         createFollowupSection(bundle, opDoc, patientResource, hipPrefix);
     }
@@ -178,7 +159,7 @@ public class OPConsultationGenerator implements DocumentGenerator {
         section.setTitle("Procedures");
         section.setCode(FHIRUtils.getProcedureSectionCode());
         Procedure procedure = new Procedure();
-        procedure.setId(UUID.randomUUID().toString());
+        procedure.setId(Utils.randomId());
         procedure.setStatus(Procedure.ProcedureStatus.COMPLETED);
         if (randomBool()) {
             procedure.setCode(FHIRUtils.getCodeableConcept(
@@ -198,7 +179,7 @@ public class OPConsultationGenerator implements DocumentGenerator {
         //performer.setActor()
 
         if (randomBool()) {
-            Practitioner surgeon = FHIRUtils.createAuthor(hipPrefix, doctors);
+            Practitioner surgeon = FHIRUtils.createAuthor(hipPrefix);
             Resource existingResourceInBundle = FHIRUtils.findResourceInBundleById(bundle, ResourceType.Practitioner, surgeon.getId());
             if (existingResourceInBundle != null) {
                 performer.setActor(FHIRUtils.getReferenceToResource(existingResourceInBundle));
@@ -226,7 +207,7 @@ public class OPConsultationGenerator implements DocumentGenerator {
         Reference docRef = composition.getAuthor().get(0);
         Appointment app = FHIRUtils.createAppointment(docRef, getAppointmentDate(composition));
         if (randomBool()) {
-            Practitioner anotherDoc = FHIRUtils.createAuthor(hipPrefix, doctors);
+            Practitioner anotherDoc = FHIRUtils.createAuthor(hipPrefix);
             Resource doctor = FHIRUtils.findResourceInBundleById(bundle, ResourceType.Practitioner, anotherDoc.getId());
             if (doctor == null) {
                 FHIRUtils.addToBundleEntry(bundle, anotherDoc, true);
@@ -255,7 +236,7 @@ public class OPConsultationGenerator implements DocumentGenerator {
         section.setTitle("Care Plan");
         section.setCode(FHIRUtils.getCarePlanSectionType());
         CarePlan plan = new CarePlan();
-        plan.setId(UUID.randomUUID().toString());
+        plan.setId(Utils.randomId());
         if (randomBool()) {
             plan.setStatus(CarePlan.CarePlanStatus.ACTIVE);
             plan.setIntent(CarePlan.CarePlanIntent.PLAN);
@@ -285,7 +266,7 @@ public class OPConsultationGenerator implements DocumentGenerator {
     }
 
     @SneakyThrows
-    protected void createDiagnosticReportSection(Bundle bundle, Composition composition, Patient patient, IParser jsonParser, String hipPrefix) {
+    protected void createDiagnosticReportSection(Bundle bundle, Composition composition, Patient patient, String hipPrefix) {
         if (randomBool()) return; //dont need diagnosticReport always
 
         Composition.SectionComponent section = composition.addSection();
@@ -293,7 +274,7 @@ public class OPConsultationGenerator implements DocumentGenerator {
         section.setCode(FHIRUtils.getDiagnosticReportType());
 
         DiagnosticReport report = new DiagnosticReport();
-        report.setId(UUID.randomUUID().toString());
+        report.setId(Utils.randomId());
         report.setStatus(DiagnosticReport.DiagnosticReportStatus.FINAL);
         section.getEntry().add(FHIRUtils.getReferenceToResource(report));
         FHIRUtils.addToBundleEntry(bundle, report, false);
@@ -315,13 +296,13 @@ public class OPConsultationGenerator implements DocumentGenerator {
         Reference organizationRef = composition.getCustodian();
         if (organizationRef == null) {
             //TODO load a different organization
-            Organization organization = jsonParser.parseResource(Organization.class, FHIRUtils.loadOrganization(hipPrefix));
+            Organization organization = OrganizationRegistry.get(hipPrefix);
             FHIRUtils.addToBundleEntry(bundle, organization, true);
             organizationRef = FHIRUtils.getReferenceToResource(organization);
         }
         report.setPerformer(Collections.singletonList(organizationRef));
 
-        Practitioner interpreter = FHIRUtils.createAuthor(hipPrefix, doctors);
+        Practitioner interpreter = FHIRUtils.createAuthor(hipPrefix);
         Resource doctor = FHIRUtils.findResourceInBundleById(bundle, ResourceType.Practitioner, interpreter.getId());
         if (doctor == null) {
             FHIRUtils.addToBundleEntry(bundle, interpreter, false);
@@ -340,10 +321,10 @@ public class OPConsultationGenerator implements DocumentGenerator {
             //presented form
             report.getPresentedForm().add(getSurgicalReportAsAttachment("Surgical Pathology Report"));
             if (randomBool()) {
-                addObservvationsToBundle(jsonParser, bundle, report);
+                addObservvationsToBundle(bundle, report);
             }
         } else {
-            addObservvationsToBundle(jsonParser, bundle, report);
+            addObservvationsToBundle(bundle, report);
         }
 
         if (randomBool()) {
@@ -361,7 +342,7 @@ public class OPConsultationGenerator implements DocumentGenerator {
 
         Practitioner docAuthor = (Practitioner) composition.getAuthorFirstRep().getResource();
         if (randomBool()) {
-            Practitioner anotherDoc = FHIRUtils.createAuthor(hipPrefix, doctors);
+            Practitioner anotherDoc = FHIRUtils.createAuthor(hipPrefix);
             Practitioner doctor = (Practitioner) FHIRUtils.findResourceInBundleById(bundle, ResourceType.Practitioner, anotherDoc.getId());
             if (doctor == null) {
                 FHIRUtils.addToBundleEntry(bundle, anotherDoc, false);
@@ -382,8 +363,7 @@ public class OPConsultationGenerator implements DocumentGenerator {
 
         Reference referenceToPatient = FHIRUtils.getReferenceToPatient(patient);
         for (int i = 0; i < numberOfMeds; i++) {
-            int medIndex = Utils.randomInt(1, 10);
-            Medicine med = Medicine.parse((String) medicationProps.get(String.valueOf(medIndex)));
+            Medicine med = ReferenceCatalogs.medicines().weighted();
             Condition condition = FHIRUtils.getCondition(med.getCondition());
             Medication medication = getMedication(med);
             if (condition != null) {
@@ -426,15 +406,15 @@ public class OPConsultationGenerator implements DocumentGenerator {
     }
 
     @SneakyThrows
-    protected void createObservationSection(Bundle bundle, Composition composition, Patient patient, IParser parser) {
+    protected void createObservationSection(Bundle bundle, Composition composition, Patient patient) {
         Composition.SectionComponent section = composition.addSection();
         section.setTitle("Physical Examination");
         section.setCode(FHIRUtils.getPhysicalExaminationSectionCode());
         int numOfObs = Utils.randomInt(1,3);
         for (int i = 0; i < numOfObs; i++) {
-            Observation observation = parser.parseResource(Observation.class, Obs.getPhysicalObsResString());
+            Observation observation = ResourceTemplates.copyOf(Observation.class, Obs.getPhysicalObsResString());
             observation.setEffective(getEffectiveObservationDate(composition, i));
-            observation.setId(UUID.randomUUID().toString());
+            observation.setId(Utils.randomId());
             FHIRUtils.addToBundleEntry(bundle, observation, true);
             section.getEntry().add(FHIRUtils.getReferenceToResource(observation));
         }
@@ -452,12 +432,12 @@ public class OPConsultationGenerator implements DocumentGenerator {
     }
 
     @SneakyThrows
-    protected void createAllergiesSection(Bundle bundle, Composition composition, Patient patient, IParser parser) {
+    protected void createAllergiesSection(Bundle bundle, Composition composition, Patient patient) {
         Composition.SectionComponent section = composition.addSection();
         section.setTitle("Allergy Section");
         section.setCode(FHIRUtils.getAllergySectionType());
-        AllergyIntolerance foodAllergy = SimpleAllergy.getFoodAllergy(parser, composition.getSubject(), composition.getAuthorFirstRep());
-        AllergyIntolerance medicationAllergy = SimpleAllergy.getMedicationAllergy(parser, composition.getSubject(), composition.getAuthorFirstRep());
+        AllergyIntolerance foodAllergy = SimpleAllergy.getFoodAllergy(composition.getSubject(), composition.getAuthorFirstRep());
+        AllergyIntolerance medicationAllergy = SimpleAllergy.getMedicationAllergy(composition.getSubject(), composition.getAuthorFirstRep());
         FHIRUtils.addToBundleEntry(bundle, foodAllergy, true);
         FHIRUtils.addToBundleEntry(bundle, medicationAllergy, true);
         section.getEntry().add(FHIRUtils.getReferenceToResource(foodAllergy));
@@ -494,9 +474,9 @@ public class OPConsultationGenerator implements DocumentGenerator {
         return "Chief Complaints";
     }
 
-    private void addObservvationsToBundle(IParser parser, Bundle bundle, DiagnosticReport report) {
-        Observation observation = parser.parseResource(Observation.class, Obs.getObservationResString());
-        observation.setId(UUID.randomUUID().toString());
+    private void addObservvationsToBundle(Bundle bundle, DiagnosticReport report) {
+        Observation observation = ResourceTemplates.copyOf(Observation.class, Obs.getObservationResString());
+        observation.setId(Utils.randomId());
         FHIRUtils.addToBundleEntry(bundle, observation, true);
         report.addResult(FHIRUtils.getReferenceToResource(observation));
     }
@@ -1,12 +1,17 @@
 package in.projecteka.utils.data;
 
-import ca.uhn.fhir.context.FhirContext;
 import in.projecteka.utils.DocRequest;
-import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.AttachmentPayloads;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.common.BundleIndex;
 import in.projecteka.utils.common.FHIRUtils;
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.common.ReferenceCatalogs;
 import in.projecteka.utils.common.Utils;
 import in.projecteka.utils.data.model.Doctor;
 import in.projecteka.utils.data.model.Medicine;
+import in.projecteka.utils.metrics.Counter;
+import in.projecteka.utils.metrics.Metrics;
 import org.hl7.fhir.r4.model.Binary;
 import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.CodeableConcept;
@@ -18,59 +23,39 @@ import org.hl7.fhir.r4.model.MedicationRequest;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Practitioner;
 import org.hl7.fhir.r4.model.Reference;
-import org.hl7.fhir.r4.model.ResourceType;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.Date;
-import java.util.List;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
-public class PrescriptionGenerator implements DocumentGenerator {
-    private Properties medicationProps;
-    private Properties doctors;
-    private Properties patients;
+public class PrescriptionGenerator implements BundleGenerator {
+    private final Counter binaryAttachments = Metrics.counter(Metrics.BINARY_ATTACHMENTS, "generator", getClass().getSimpleName());
 
     public void init() throws Exception {
-        medicationProps = Utils.loadFromFile("/medications.properties");
-        doctors = Utils.loadFromFile("/practitioners.properties");
-        patients = Utils.loadFromFile("/patients.properties");
     }
 
     public void execute(DocRequest request) throws Exception {
-        FhirContext fhirContext = FhirContext.forR4();
-        LocalDateTime dateTime = request.getFromDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        for (int i = 0; i < request.getNumber(); i++) {
-            Date date = Utils.getNextDate(dateTime, i);
-            Bundle bundle = createPrescriptionBundle(date, request.getPatientName(), request.getProvName(), request.getPatientId());
-            String encodedString = fhirContext.newJsonParser().encodeResourceToString(bundle);
-            List<Bundle.BundleEntryComponent> patientEntries =
-                    bundle.getEntry().stream()
-                            .filter(e -> e.getResource().getResourceType().equals(ResourceType.Patient))
-                            .collect(Collectors.toList());
-            Bundle.BundleEntryComponent patientEntry = patientEntries.get(0);
+        GenerationEngine.run(request, i -> {
+            Date date = Utils.getNextDate(request.getFromDate(), i);
+            Bundle bundle = buildBundle(request, date);
+            String patientId = BundleIndex.of(bundle).getPatient().getId();
             String fileName = String.format("%s%sPrescriptionDoc%s.json",
                     request.getProvName().toUpperCase(),
-                    patientEntry.getResource().getId(),
+                    patientId,
                     Utils.formatDate(date, "yyyyMMdd"));
-            Path path = Paths.get(request.getOutPath().toString(), fileName);
-            System.out.println("Saving Prescription to file:" + path.toString());
-            Utils.saveToFile(path, encodedString);
-            //System.out.println(encodedString);
-        }
+            request.getSink().write(fileName, bundle);
+        });
+    }
+
+    @Override
+    public Bundle createBundle(DocRequest request, Date date) throws Exception {
+        return createPrescriptionBundle(date, FHIRUtils.getPatientResource(request), request.getProvName());
     }
 
-    private Bundle createPrescriptionBundle(Date date, String patientName, String hipPrefix, String patientId) throws Exception {
+    private Bundle createPrescriptionBundle(Date date, Patient patientResource, String hipPrefix) throws Exception {
         Bundle bundle = FHIRUtils.createBundle(date, hipPrefix);
-        Patient patientResource = FHIRUtils.getPatientResource(patientName, patientId, patients);
         Reference patientRef = createPatientReference(patientResource);
 
         Composition prescriptionDoc = new Composition();
-        prescriptionDoc.setId(UUID.randomUUID().toString());
+        prescriptionDoc.setId(Utils.randomId());
         prescriptionDoc.setDate(bundle.getTimestamp());
         prescriptionDoc.setIdentifier(FHIRUtils.getIdentifier(prescriptionDoc.getId(), hipPrefix, "document"));
         prescriptionDoc.setStatus(Composition.CompositionStatus.FINAL);
@@ -79,7 +64,7 @@ public class PrescriptionGenerator implements DocumentGenerator {
         prescriptionDoc.setTitle("Prescription");
         FHIRUtils.addToBundleEntry(bundle, prescriptionDoc, false);
 
-        Practitioner author = FHIRUtils.createAuthor(hipPrefix, doctors);
+        Practitioner author = FHIRUtils.createAuthor(hipPrefix);
         FHIRUtils.addToBundleEntry(bundle, author, false);
         prescriptionDoc.addAuthor().setResource(author);
         if (Utils.randomBool()) {
@@ -102,8 +87,7 @@ public class PrescriptionGenerator implements DocumentGenerator {
 
         int numberOfMeds = Utils.randomInt(1, 3);
         for (int i = 0; i < numberOfMeds; i++) {
-            int medIndex = Utils.randomInt(1, 10);
-            Medicine med = Medicine.parse((String) medicationProps.get(String.valueOf(medIndex)));
+            Medicine med = ReferenceCatalogs.medicines().weighted();
             Condition condition = FHIRUtils.getCondition(med.getCondition());
             Medication medication = FHIRUtils.getMedication(med);
             if (condition != null) {
@@ -121,11 +105,9 @@ public class PrescriptionGenerator implements DocumentGenerator {
         }
 
         if (Utils.randomInt(1,10) % 3 == 0) {
-            System.out.println("Including a binary resource");
-            Binary binary = new Binary();
-            binary.setId(UUID.randomUUID().toString());
-            binary.setContentType("application/pdf");
-            binary.setData(Utils.readFileContent("/sample-prescription-base64.txt"));
+            binaryAttachments.increment();
+            Binary binary = AttachmentPayloads.binary(AttachmentPayloads.PRESCRIPTION);
+            binary.setId(Utils.randomId());
             FHIRUtils.addToBundleEntry(bundle, binary, false);
             section.getEntry().add(FHIRUtils.getReferenceToResource(binary));
         }
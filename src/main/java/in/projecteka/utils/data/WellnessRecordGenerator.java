@@ -1,10 +1,11 @@
 package in.projecteka.utils.data;
 
-import ca.uhn.fhir.context.FhirContext;
-import ca.uhn.fhir.parser.IParser;
 import in.projecteka.utils.DocRequest;
-import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.common.BundleIndex;
 import in.projecteka.utils.common.FHIRUtils;
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.common.ResourceTemplates;
 import in.projecteka.utils.common.Utils;
 import in.projecteka.utils.data.model.Doctor;
 import in.projecteka.utils.data.model.Obs;
@@ -17,59 +18,39 @@ import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Practitioner;
 import org.hl7.fhir.r4.model.Reference;
-import org.hl7.fhir.r4.model.ResourceType;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.Date;
-import java.util.List;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.stream.Collectors;
-
-public class WellnessRecordGenerator implements DocumentGenerator {
-    private Properties doctors;
-    private Properties patients;
 
+public class WellnessRecordGenerator implements BundleGenerator {
     @Override
     public void init() throws Exception {
-        doctors = Utils.loadFromFile("/practitioners.properties");
-        patients = Utils.loadFromFile("/patients.properties");
     }
 
     @Override
     public void execute(DocRequest request) throws Exception {
-        FhirContext fhirContext = FhirContext.forR4();
-        LocalDateTime dateTime = request.getFromDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        for (int i = 0; i < request.getNumber(); i++) {
-            Date date = Utils.getNextDate(dateTime, i);
-            Bundle bundle = createWellnessRecordBundle(date, request.getPatientName(), request.getProvName(), request.getPatientId(), fhirContext.newJsonParser()
-            );
-            String encodedString = fhirContext.newJsonParser().encodeResourceToString(bundle);
-            List<Bundle.BundleEntryComponent> patientEntries =
-                    bundle.getEntry().stream()
-                            .filter(e -> e.getResource().getResourceType().equals(ResourceType.Patient))
-                            .collect(Collectors.toList());
-            Bundle.BundleEntryComponent patientEntry = patientEntries.get(0);
+        GenerationEngine.run(request, i -> {
+            Date date = Utils.getNextDate(request.getFromDate(), i);
+            Bundle bundle = buildBundle(request, date);
+            String patientId = BundleIndex.of(bundle).getPatient().getId();
             String fileName = String.format("%s%sWellnessRecordDoc%s.json",
                     request.getProvName().toUpperCase(),
-                    patientEntry.getResource().getId(),
+                    patientId,
                     Utils.formatDate(date, "yyyyMMdd"));
-            Path path = Paths.get(request.getOutPath().toString(), fileName);
-            System.out.println("Saving WellnessRecord to file:" + path.toString());
-            Utils.saveToFile(path, encodedString);
-        }
+            request.getSink().write(fileName, bundle);
+        });
+    }
+
+    @Override
+    public Bundle createBundle(DocRequest request, Date date) throws Exception {
+        return createWellnessRecordBundle(date, FHIRUtils.getPatientResource(request), request.getProvName());
     }
 
-    private Bundle createWellnessRecordBundle(Date date, String patientName, String hipPrefix, String patientId, IParser jsonParser) throws Exception {
+    private Bundle createWellnessRecordBundle(Date date, Patient patientResource, String hipPrefix) throws Exception {
         Bundle bundle = FHIRUtils.createBundle(date, hipPrefix);
-        Patient patientResource = FHIRUtils.getPatientResource(patientName, patientId, patients);
         Reference patientRef = createPatientReference(patientResource);
 
         Composition wellnessRecordDoc = new Composition();
-        wellnessRecordDoc.setId(UUID.randomUUID().toString());
+        wellnessRecordDoc.setId(Utils.randomId());
         wellnessRecordDoc.setDate(bundle.getTimestamp());
         wellnessRecordDoc.setIdentifier(FHIRUtils.getIdentifier(wellnessRecordDoc.getId(), hipPrefix, "document"));
         wellnessRecordDoc.setStatus(Composition.CompositionStatus.FINAL);
@@ -78,7 +59,7 @@ public class WellnessRecordGenerator implements DocumentGenerator {
         wellnessRecordDoc.setTitle("Wellness Record");
         FHIRUtils.addToBundleEntry(bundle, wellnessRecordDoc, false);
 
-        Practitioner author = FHIRUtils.createAuthor(hipPrefix, doctors);
+        Practitioner author = FHIRUtils.createAuthor(hipPrefix);
         FHIRUtils.addToBundleEntry(bundle, author, false);
         wellnessRecordDoc.addAuthor().setResource(author);
         if (Utils.randomBool()) {
@@ -93,7 +74,7 @@ public class WellnessRecordGenerator implements DocumentGenerator {
         FHIRUtils.addToBundleEntry(bundle, encounter, false);
         wellnessRecordDoc.setEncounter(FHIRUtils.getReferenceToResource(encounter));
 
-        generateSections(jsonParser, bundle, wellnessRecordDoc);
+        generateSections(bundle, wellnessRecordDoc);
 
         Composition.SectionComponent section = wellnessRecordDoc.addSection();
         section.setTitle("Document Reference");
@@ -103,87 +84,87 @@ public class WellnessRecordGenerator implements DocumentGenerator {
         return bundle;
     }
 
-    private void generateSections(IParser jsonParser, Bundle bundle, Composition wellnessRecDoc) {
-        createObservationVitalSignsSection(bundle, wellnessRecDoc, jsonParser);
-        createObservationBodyMeasurementSection(bundle, wellnessRecDoc, jsonParser);
-        createObservationGeneralAssessmentSection(bundle, wellnessRecDoc, jsonParser);
-        createObservationPhysicalActivitySection(bundle, wellnessRecDoc, jsonParser);
-        createObservationWomenHealthSection(bundle, wellnessRecDoc, jsonParser);
-        createObservationLifestyleSection(bundle, wellnessRecDoc, jsonParser);
-        createDocumentReferenceSection(bundle, wellnessRecDoc, jsonParser);
+    private void generateSections(Bundle bundle, Composition wellnessRecDoc) {
+        createObservationVitalSignsSection(bundle, wellnessRecDoc);
+        createObservationBodyMeasurementSection(bundle, wellnessRecDoc);
+        createObservationGeneralAssessmentSection(bundle, wellnessRecDoc);
+        createObservationPhysicalActivitySection(bundle, wellnessRecDoc);
+        createObservationWomenHealthSection(bundle, wellnessRecDoc);
+        createObservationLifestyleSection(bundle, wellnessRecDoc);
+        createDocumentReferenceSection(bundle, wellnessRecDoc);
     }
 
-    private void createDocumentReferenceSection(Bundle bundle, Composition wellnessRecDoc, IParser jsonParser) {
+    private void createDocumentReferenceSection(Bundle bundle, Composition wellnessRecDoc) {
 
     }
 
-    private void createObservationVitalSignsSection(Bundle bundle, Composition composition, IParser parser) {
+    private void createObservationVitalSignsSection(Bundle bundle, Composition composition) {
         Composition.SectionComponent section = composition.addSection();
         section.setTitle("Vital Signs");
         int numOfObs = Utils.randomInt(1, 3);
         for (int i = 0; i < numOfObs; i++) {
-            Observation observation = parser.parseResource(Observation.class, Obs.getVitalSignsObsResString());
-            observation.setId(UUID.randomUUID().toString());
+            Observation observation = ResourceTemplates.copyOf(Observation.class, Obs.getVitalSignsObsResString());
+            observation.setId(Utils.randomId());
             FHIRUtils.addToBundleEntry(bundle, observation, true);
             section.getEntry().add(FHIRUtils.getReferenceToResource(observation));
         }
     }
 
-    private void createObservationBodyMeasurementSection(Bundle bundle, Composition composition, IParser parser) {
+    private void createObservationBodyMeasurementSection(Bundle bundle, Composition composition) {
         Composition.SectionComponent section = composition.addSection();
         section.setTitle("Body Measurement");
         int numOfObs = Utils.randomInt(1, 3);
         for (int i = 0; i < numOfObs; i++) {
-            Observation observation = parser.parseResource(Observation.class, Obs.getBodyMeasurementObsResString());
-            observation.setId(UUID.randomUUID().toString());
+            Observation observation = ResourceTemplates.copyOf(Observation.class, Obs.getBodyMeasurementObsResString());
+            observation.setId(Utils.randomId());
             FHIRUtils.addToBundleEntry(bundle, observation, true);
             section.getEntry().add(FHIRUtils.getReferenceToResource(observation));
         }
     }
 
-    private void createObservationPhysicalActivitySection(Bundle bundle, Composition composition, IParser parser) {
+    private void createObservationPhysicalActivitySection(Bundle bundle, Composition composition) {
         Composition.SectionComponent section = composition.addSection();
         section.setTitle("Physical Activity");
         int numOfObs = Utils.randomInt(1, 3);
         for (int i = 0; i < numOfObs; i++) {
-            Observation observation = parser.parseResource(Observation.class, Obs.getPhysicalActivityObsResString());
-            observation.setId(UUID.randomUUID().toString());
+            Observation observation = ResourceTemplates.copyOf(Observation.class, Obs.getPhysicalActivityObsResString());
+            observation.setId(Utils.randomId());
             FHIRUtils.addToBundleEntry(bundle, observation, true);
             section.getEntry().add(FHIRUtils.getReferenceToResource(observation));
         }
     }
 
-    private void createObservationGeneralAssessmentSection(Bundle bundle, Composition composition, IParser parser) {
+    private void createObservationGeneralAssessmentSection(Bundle bundle, Composition composition) {
         Composition.SectionComponent section = composition.addSection();
         section.setTitle("General Assessment");
         int numOfObs = Utils.randomInt(1, 3);
         for (int i = 0; i < numOfObs; i++) {
-            Observation observation = parser.parseResource(Observation.class, Obs.getGeneralAssessmentResString());
-            observation.setId(UUID.randomUUID().toString());
+            Observation observation = ResourceTemplates.copyOf(Observation.class, Obs.getGeneralAssessmentResString());
+            observation.setId(Utils.randomId());
             FHIRUtils.addToBundleEntry(bundle, observation, true);
             section.getEntry().add(FHIRUtils.getReferenceToResource(observation));
         }
     }
 
-    private void createObservationWomenHealthSection(Bundle bundle, Composition composition, IParser parser) {
+    private void createObservationWomenHealthSection(Bundle bundle, Composition composition) {
         Composition.SectionComponent section = composition.addSection();
         section.setTitle("Women Health");
         int numOfObs = Utils.randomInt(1, 3);
         for (int i = 0; i < numOfObs; i++) {
-            Observation observation = parser.parseResource(Observation.class, Obs.getWomenHealthObsResString());
-            observation.setId(UUID.randomUUID().toString());
+            Observation observation = ResourceTemplates.copyOf(Observation.class, Obs.getWomenHealthObsResString());
+            observation.setId(Utils.randomId());
             FHIRUtils.addToBundleEntry(bundle, observation, true);
             section.getEntry().add(FHIRUtils.getReferenceToResource(observation));
         }
     }
 
-    private void createObservationLifestyleSection(Bundle bundle, Composition composition, IParser parser) {
+    private void createObservationLifestyleSection(Bundle bundle, Composition composition) {
         Composition.SectionComponent section = composition.addSection();
         section.setTitle("Lifestyle");
         int numOfObs = Utils.randomInt(1, 3);
         for (int i = 0; i < numOfObs; i++) {
-            Observation observation = parser.parseResource(Observation.class, Obs.getLifestyleObsResString());
-            observation.setId(UUID.randomUUID().toString());
+            Observation observation = ResourceTemplates.copyOf(Observation.class, Obs.getLifestyleObsResString());
+            observation.setId(Utils.randomId());
             FHIRUtils.addToBundleEntry(bundle, observation, true);
             section.getEntry().add(FHIRUtils.getReferenceToResource(observation));
         }
@@ -1,7 +1,11 @@
 package in.projecteka.utils.data.model;
 
+import in.projecteka.utils.common.FHIRUtils;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import org.hl7.fhir.r4.model.Practitioner;
 
 @Data
@@ -11,6 +15,11 @@ public class Doctor {
     String docId;
     String prefix;
     String suffix;
+    //named Practitioner without id, copied for every author
+    @Getter(lazy = true)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Practitioner practitioner = createPractitioner();
 
     public static Doctor parse(String details) {
         String[] parts = details.split(",");
@@ -20,4 +29,10 @@ public class Doctor {
     public static String getDisplay(Practitioner author) {
         return String.format("%s %s", author.getNameFirstRep().getPrefixAsSingleString(), author.getNameFirstRep().getText());
     }
+
+    private Practitioner createPractitioner() {
+        Practitioner practitioner = new Practitioner();
+        practitioner.getName().add(FHIRUtils.getHumanName(name, prefix, suffix));
+        return practitioner;
+    }
 }
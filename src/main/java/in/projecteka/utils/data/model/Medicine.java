@@ -1,7 +1,12 @@
 package in.projecteka.utils.data.model;
 
+import in.projecteka.utils.common.FHIRUtils;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.hl7.fhir.r4.model.Medication;
 
 @Data
 @AllArgsConstructor
@@ -11,6 +16,15 @@ public class Medicine {
     String condition;
     String instruction;
     String notes;
+    //Medication without id, coded or by name only, copied for every prescription
+    @Getter(lazy = true)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Medication codedMedication = FHIRUtils.createMedication(this, true);
+    @Getter(lazy = true)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Medication namedMedication = FHIRUtils.createMedication(this, false);
 
     public static Medicine parse(String details) {
         String[] parts = details.split(",");
@@ -11,9 +11,12 @@ public class Patient {
     String hid;
     String cmId;
     String hospitalId;
+    //optional, ABHA (health id) number like 91-1234-5678-9012
+    String abhaNumber;
 
     public static Patient parse(String details) {
         String[] parts = details.split(",");
-        return new Patient(parts[0].trim(), parts[1].trim(), parts[2].trim(), parts[3].trim(), parts[4].trim());
+        return new Patient(parts[0].trim(), parts[1].trim(), parts[2].trim(), parts[3].trim(), parts[4].trim(),
+                parts.length > 5 ? parts[5].trim() : null);
     }
 }
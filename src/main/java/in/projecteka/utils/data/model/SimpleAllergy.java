@@ -1,6 +1,6 @@
 package in.projecteka.utils.data.model;
 
-import ca.uhn.fhir.parser.IParser;
+import in.projecteka.utils.common.ResourceTemplates;
 import org.hl7.fhir.r4.model.AllergyIntolerance;
 import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.StringType;
@@ -88,8 +88,8 @@ public class SimpleAllergy {
         return penicillinAllergy;
     }
 
-    public static AllergyIntolerance getFoodAllergy(IParser parser, Reference patientRef, Reference practitionerRef) {
-        AllergyIntolerance foodAllergy = parser.parseResource(AllergyIntolerance.class, getFoodAllergyResString());
+    public static AllergyIntolerance getFoodAllergy(Reference patientRef, Reference practitionerRef) {
+        AllergyIntolerance foodAllergy = ResourceTemplates.copyOf(AllergyIntolerance.class, getFoodAllergyResString());
         foodAllergy.setPatient(patientRef);
         StringType onsetString = new StringType();
         onsetString.setValue("Past 1 year");
@@ -98,8 +98,8 @@ public class SimpleAllergy {
         return foodAllergy;
     }
 
-    public static AllergyIntolerance getMedicationAllergy(IParser parser, Reference patientRef, Reference practitionerRef) {
-        AllergyIntolerance medAllergy = parser.parseResource(AllergyIntolerance.class, getMedicationResString());
+    public static AllergyIntolerance getMedicationAllergy(Reference patientRef, Reference practitionerRef) {
+        AllergyIntolerance medAllergy = ResourceTemplates.copyOf(AllergyIntolerance.class, getMedicationResString());
         medAllergy.setPatient(patientRef);
         StringType onsetString = new StringType();
         onsetString.setValue("Past 2 year");
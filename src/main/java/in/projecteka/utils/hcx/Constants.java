@@ -3,4 +3,10 @@ package in.projecteka.utils.hcx;
 public class Constants {
     static final String SYS_HCX_DOCTYPE = "https://www.hcx.org/document-type";
     static final String VS_FHIR_SUBSCRIBER_REL = "http://hl7.org/fhir/ValueSet/subscriber-relationship";
+    static final String CS_BENEFIT_CATEGORY = "http://terminology.hl7.org/CodeSystem/ex-benefitcategory";
+    static final String CS_BENEFIT_TYPE = "http://terminology.hl7.org/CodeSystem/benefit-type";
+    static final String CS_BENEFIT_NETWORK = "http://terminology.hl7.org/CodeSystem/benefit-network";
+    static final String CS_BENEFIT_UNIT = "http://terminology.hl7.org/CodeSystem/benefit-unit";
+    static final String CS_BENEFIT_TERM = "http://terminology.hl7.org/CodeSystem/benefit-term";
+    static final String CS_ADJUDICATION_ERROR = "http://terminology.hl7.org/CodeSystem/adjudication-error";
 }
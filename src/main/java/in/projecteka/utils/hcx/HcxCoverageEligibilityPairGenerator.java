@@ -0,0 +1,43 @@
+package in.projecteka.utils.hcx;
+
+import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.common.BundleIndex;
+import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.common.Utils;
+import in.projecteka.utils.metrics.BundleMetrics;
+import org.hl7.fhir.r4.model.Bundle;
+
+import java.util.Date;
+
+/**
+ * Generates coverage eligibility requests together with the insurer's response to each of them.
+ * Every pair is one unit of work, so pairs are generated in parallel. The request and the response are two
+ * separate documents though: in ndjson, archives and stdout the response follows its request only in seeded runs,
+ * which write documents in order. Otherwise, with more than one worker, documents of other pairs may come between
+ * them; the name of both documents carries the index of the pair.
+ */
+public class HcxCoverageEligibilityPairGenerator implements DocumentGenerator {
+    private final HcxCoverageEligibilityRequestGenerator requestGenerator = new HcxCoverageEligibilityRequestGenerator();
+    private final HcxCoverageEligibilityResponseGenerator responseGenerator = new HcxCoverageEligibilityResponseGenerator();
+    private final BundleMetrics responseMetrics = BundleMetrics.of(HcxCoverageEligibilityResponseGenerator.class);
+
+    @Override
+    public void init() throws Exception {
+        requestGenerator.init();
+        responseGenerator.init();
+    }
+
+    @Override
+    public void execute(DocRequest docRequest) throws Exception {
+        GenerationEngine.run(docRequest.getNumber(), docRequest.getParallelism(), "pairs", i -> {
+            Date date = Utils.getNextDate(docRequest.getFromDate(), i);
+            Bundle request = requestGenerator.buildBundle(docRequest, date);
+            Bundle response = responseMetrics.build(docRequest.getType(), () -> responseGenerator.createResponseBundle(request));
+            String prefix = String.format("%s%s", docRequest.getProvName().toUpperCase(), BundleIndex.of(request).getPatient().getId());
+            String suffix = String.format("%s-%d.json", Utils.formatDate(date, "yyyyMMdd"), i);
+            docRequest.getSink().write(prefix + "CoverageEligibilityRequestDoc" + suffix, request);
+            docRequest.getSink().write(prefix + "CoverageEligibilityResponseDoc" + suffix, response);
+        });
+    }
+}
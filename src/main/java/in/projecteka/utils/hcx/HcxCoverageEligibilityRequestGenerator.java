@@ -1,10 +1,11 @@
 package in.projecteka.utils.hcx;
 
-import ca.uhn.fhir.context.FhirContext;
-import ca.uhn.fhir.parser.IParser;
 import in.projecteka.utils.DocRequest;
-import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.common.BundleIndex;
 import in.projecteka.utils.common.FHIRUtils;
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.common.OrganizationRegistry;
 import in.projecteka.utils.common.Utils;
 import lombok.SneakyThrows;
 import org.hl7.fhir.r4.model.Bundle;
@@ -14,63 +15,42 @@ import org.hl7.fhir.r4.model.CoverageEligibilityRequest;
 import org.hl7.fhir.r4.model.Organization;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Reference;
-import org.hl7.fhir.r4.model.ResourceType;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.List;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.stream.Collectors;
-
-public class HcxCoverageEligibilityRequestGenerator implements DocumentGenerator {
-    private Properties doctors;
-    private Properties patients;
 
+public class HcxCoverageEligibilityRequestGenerator implements BundleGenerator {
     @Override
     public void init() throws Exception {
-        doctors = Utils.loadFromFile("/practitioners.properties");
-        patients = Utils.loadFromFile("/patients.properties");
     }
 
     @Override
     public void execute(DocRequest docRequest) throws Exception {
-        FhirContext fhirContext = FhirContext.forR4();
-        LocalDateTime dateTime = docRequest.getFromDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        for (int i = 0; i < docRequest.getNumber(); i++) {
-            Date date = Utils.getNextDate(dateTime, i);
-            Bundle bundle = createCoverageEligbilityRequestBundle(
-                    fhirContext.newJsonParser(),
-                    date,
-                    docRequest.getPatientId(),
-                    docRequest.getPatientName(),
-                    docRequest.getProvName());
-            String encodedString = fhirContext.newJsonParser().encodeResourceToString(bundle);
-            List<Bundle.BundleEntryComponent> patientEntries =
-                    bundle.getEntry().stream()
-                            .filter(e -> e.getResource().getResourceType().equals(ResourceType.Patient))
-                            .collect(Collectors.toList());
-            Bundle.BundleEntryComponent patientEntry = patientEntries.get(0);
+        GenerationEngine.run(docRequest, i -> {
+            Date date = Utils.getNextDate(docRequest.getFromDate(), i);
+            Bundle bundle = buildBundle(docRequest, date);
+            String patientId = BundleIndex.of(bundle).getPatient().getId();
             String fileName = String.format("%s%sCoverageEligibilityRequestDoc%s.json",
                     docRequest.getProvName().toUpperCase(),
-                    patientEntry.getResource().getId(),
+                    patientId,
                     Utils.formatDate(date, "yyyyMMdd"));
-            Path path = Paths.get(docRequest.getOutPath().toString(), fileName);
-            System.out.println("Saving CoverageEligibilityRequestDoc to file:" + path.toString());
-            Utils.saveToFile(path, encodedString);
-        }
+            docRequest.getSink().write(fileName, bundle);
+        });
 
     }
 
+    @Override
+    public Bundle createBundle(DocRequest request, Date date) throws Exception {
+        return createCoverageEligbilityRequestBundle(
+                date,
+                FHIRUtils.getPatientResource(request),
+                request.getProvName());
+    }
+
     @SneakyThrows
-    private Bundle createCoverageEligbilityRequestBundle(IParser fhirParser, Date date, String patientId, String patientName, String hipPrefix) {
+    private Bundle createCoverageEligbilityRequestBundle(Date date, Patient patientResource, String hipPrefix) {
         //Create bundle and other resources like patinet and provider organization
         Bundle bundle = FHIRUtils.createBundle(date, hipPrefix);
-        Patient patientResource = FHIRUtils.getPatientResource(patientName, patientId, patients);
         patientResource.addIdentifier(HcxFhirUtils. createInsurerIdentifier("http://gicofIndia.com", "BEN-101"));
         if (Utils.randomBool()) {
             patientResource.addIdentifier(FHIRUtils.getIdentifier(
@@ -78,12 +58,12 @@ public class HcxCoverageEligibilityRequestGenerator implements DocumentGenerator
         }
 
         Reference patientRef = FHIRUtils.getReferenceToPatient(patientResource);
-        //Practitioner author = FHIRUtils.createAuthor(hipPrefix, doctors);
-        Organization author = fhirParser.parseResource(Organization.class, FHIRUtils.loadOrganization(hipPrefix));
+        //Practitioner author = FHIRUtils.createAuthor(hipPrefix);
+        Organization author = OrganizationRegistry.get(hipPrefix);
 
 
         Composition composition = new Composition();
-        composition.setId(UUID.randomUUID().toString());
+        composition.setId(Utils.randomId());
         composition.setDate(bundle.getTimestamp());
         composition.setIdentifier(FHIRUtils.getIdentifier(composition.getId(), hipPrefix, "hcx-documents")); //TODO IG
         composition.setStatus(Composition.CompositionStatus.FINAL);
@@ -101,7 +81,7 @@ public class HcxCoverageEligibilityRequestGenerator implements DocumentGenerator
         section.setTitle("# Eligibility Request");
         section.setCode(HcxFhirUtils.getCoverageEligibilityResourceType()); //TODO IG - Same as Composition.type?
         CoverageEligibilityRequest cer = new CoverageEligibilityRequest();
-        cer.setId(UUID.randomUUID().toString()); //request id
+        cer.setId(Utils.randomId()); //request id
 
         section.getEntry().add(FHIRUtils.getReferenceToResource(cer));
         FHIRUtils.addToBundleEntry(bundle, cer, false);
@@ -114,19 +94,20 @@ public class HcxCoverageEligibilityRequestGenerator implements DocumentGenerator
         cer.setPatient(patientRef); //ref to patient resource
 
         //set service period
-        Date start = Date.from(LocalDateTime.now().minusDays(1L).atZone(ZoneId.systemDefault()).toInstant());
-        Date end = Date.from(LocalDateTime.now().plusDays(1L).atZone(ZoneId.systemDefault()).toInstant());
+        //relative to the document date rather than now, so that seeded runs are reproducible
+        Date start = Utils.getPastDate(date, 1);
+        Date end = Utils.getFutureDate(date, 1);
         cer.setServiced(FHIRUtils.newPeriod(start, end));
 
-        cer.setCreated(new Date());
+        cer.setCreated(date);
         cer.setProvider(FHIRUtils.getReferenceToResource(author));
-        Organization insurer = fhirParser.parseResource(Organization.class, FHIRUtils.loadOrganization("gic"));
+        Organization insurer = OrganizationRegistry.get("gic");
         FHIRUtils.addToBundleEntry(bundle, insurer, true);
         Reference insurerRef = FHIRUtils.getReferenceToResource(insurer);
         cer.setInsurer(insurerRef); //set insurer
 
         Coverage coverage = new Coverage();
-        coverage.setId(UUID.randomUUID().toString());
+        coverage.setId(Utils.randomId());
         coverage.addIdentifier(FHIRUtils.getIdentifier("policy-"+patientResource.getId(), "gicofIndia", "policies"));
         coverage.setStatus(Coverage.CoverageStatus.ACTIVE);
         coverage.setSubscriber(patientRef); //if not the patient, then a different patient  resource should be created and embedded onto the bundle, with the right identifier
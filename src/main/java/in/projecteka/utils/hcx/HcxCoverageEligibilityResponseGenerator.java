@@ -1,142 +1,191 @@
 package in.projecteka.utils.hcx;
 
-import ca.uhn.fhir.context.FhirContext;
-import ca.uhn.fhir.parser.IParser;
 import in.projecteka.utils.DocRequest;
-import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.common.BundleIndex;
 import in.projecteka.utils.common.FHIRUtils;
+import in.projecteka.utils.common.GenerationEngine;
 import in.projecteka.utils.common.Utils;
-import lombok.SneakyThrows;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.Composition;
 import org.hl7.fhir.r4.model.Coverage;
 import org.hl7.fhir.r4.model.CoverageEligibilityRequest;
+import org.hl7.fhir.r4.model.CoverageEligibilityResponse;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Money;
 import org.hl7.fhir.r4.model.Organization;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Reference;
 import org.hl7.fhir.r4.model.ResourceType;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.Arrays;
+import java.math.BigDecimal;
 import java.util.Date;
-import java.util.List;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
-public class HcxCoverageEligibilityResponseGenerator implements DocumentGenerator {
-    private Properties doctors;
-    private Properties patients;
+import static in.projecteka.utils.hcx.Constants.CS_ADJUDICATION_ERROR;
+import static in.projecteka.utils.hcx.Constants.CS_BENEFIT_CATEGORY;
+import static in.projecteka.utils.hcx.Constants.CS_BENEFIT_NETWORK;
+import static in.projecteka.utils.hcx.Constants.CS_BENEFIT_TERM;
+import static in.projecteka.utils.hcx.Constants.CS_BENEFIT_TYPE;
+import static in.projecteka.utils.hcx.Constants.CS_BENEFIT_UNIT;
+
+/**
+ * Generates the insurer's responses to coverage eligibility requests. Each response is built from a request
+ * bundle, and refers to the same patient, provider, insurer and coverage resources, as copies of its own.
+ */
+public class HcxCoverageEligibilityResponseGenerator implements BundleGenerator {
+    private final HcxCoverageEligibilityRequestGenerator requestGenerator = new HcxCoverageEligibilityRequestGenerator();
 
     @Override
     public void init() throws Exception {
-        doctors = Utils.loadFromFile("/practitioners.properties");
-        patients = Utils.loadFromFile("/patients.properties");
+        requestGenerator.init();
     }
 
     @Override
     public void execute(DocRequest docRequest) throws Exception {
-        FhirContext fhirContext = FhirContext.forR4();
-        LocalDateTime dateTime = docRequest.getFromDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        for (int i = 0; i < docRequest.getNumber(); i++) {
-            Date date = Utils.getNextDate(dateTime, i);
-            Bundle bundle = createCoverageEligbilityRequestBundle(
-                    fhirContext.newJsonParser(),
-                    date,
-                    docRequest.getPatientId(),
-                    docRequest.getPatientName(),
-                    docRequest.getProvName());
-            String encodedString = fhirContext.newJsonParser().encodeResourceToString(bundle);
-            List<Bundle.BundleEntryComponent> patientEntries =
-                    bundle.getEntry().stream()
-                            .filter(e -> e.getResource().getResourceType().equals(ResourceType.Patient))
-                            .collect(Collectors.toList());
-            Bundle.BundleEntryComponent patientEntry = patientEntries.get(0);
-            String fileName = String.format("%s%sCoverageEligibilityRequestDoc%s.json",
+        GenerationEngine.run(docRequest, i -> {
+            Date date = Utils.getNextDate(docRequest.getFromDate(), i);
+            Bundle bundle = buildBundle(docRequest, date);
+            String patientId = BundleIndex.of(bundle).getPatient().getId();
+            String fileName = String.format("%s%sCoverageEligibilityResponseDoc%s.json",
                     docRequest.getProvName().toUpperCase(),
-                    patientEntry.getResource().getId(),
+                    patientId,
                     Utils.formatDate(date, "yyyyMMdd"));
-            Path path = Paths.get(docRequest.getOutPath().toString(), fileName);
-            System.out.println("Saving CoverageEligibilityRequestDoc to file:" + path.toString());
-            Utils.saveToFile(path, encodedString);
-        }
+            docRequest.getSink().write(fileName, bundle);
+        });
 
     }
 
-    @SneakyThrows
-    private Bundle createCoverageEligbilityRequestBundle(IParser fhirParser, Date date, String patientId, String patientName, String hipPrefix) {
-        //Create bundle and other resources like patinet and provider organization
-        Bundle bundle = FHIRUtils.createBundle(date, hipPrefix);
-        Patient patientResource = FHIRUtils.getPatientResource(patientName, patientId, patients);
-        patientResource.addIdentifier(HcxFhirUtils. createInsurerIdentifier("http://gicofIndia.com", "BEN-101"));
-
-        Reference patientRef = FHIRUtils.getReferenceToPatient(patientResource);
-        //Practitioner author = FHIRUtils.createAuthor(hipPrefix, doctors);
-        Organization author = fhirParser.parseResource(Organization.class, FHIRUtils.loadOrganization(hipPrefix));
+    @Override
+    public Bundle createBundle(DocRequest request, Date date) throws Exception {
+        return createResponseBundle(requestGenerator.createBundle(request, date));
+    }
 
+    /**
+     * @param requestBundle bundle with the CoverageEligibilityRequest to respond to, on behalf of its insurer
+     */
+    Bundle createResponseBundle(Bundle requestBundle) {
+        CoverageEligibilityRequest cer = (CoverageEligibilityRequest)
+                BundleIndex.of(requestBundle).first(ResourceType.CoverageEligibilityRequest);
+        if (cer == null) {
+            throw new RuntimeException("Bundle does not contain a CoverageEligibilityRequest");
+        }
+        //copies, so that changes to either bundle do not affect the other
+        Patient patient = ((Patient) cer.getPatient().getResource()).copy();
+        Organization provider = ((Organization) cer.getProvider().getResource()).copy();
+        Organization insurer = ((Organization) cer.getInsurer().getResource()).copy();
+        Coverage coverage = ((Coverage) cer.getInsuranceFirstRep().getCoverage().getResource()).copy();
+        //copied references do not keep their resources, point them to the copies in this bundle
+        coverage.getSubscriber().setResource(patient);
+        coverage.getBeneficiary().setResource(patient);
+        coverage.getPayorFirstRep().setResource(insurer);
+        //identifiers of the response are issued by the insurer, e.g. https://www.gicofindia.in/bundle
+        String insurerPrefix = insurer.getIdElement().getIdPart().toLowerCase();
+
+        //insurers take a few minutes to respond
+        Date date = Utils.getFutureTime(cer.getCreated(), Utils.randomInt(1, 30));
+        Bundle bundle = FHIRUtils.createBundle(date, insurerPrefix);
 
         Composition composition = new Composition();
-        composition.setId(UUID.randomUUID().toString());
+        composition.setId(Utils.randomId());
         composition.setDate(bundle.getTimestamp());
-        composition.setIdentifier(FHIRUtils.getIdentifier(composition.getId(), hipPrefix, "hcx-documents")); //TODO IG
+        composition.setIdentifier(FHIRUtils.getIdentifier(composition.getId(), insurerPrefix, "hcx-documents")); //TODO IG
         composition.setStatus(Composition.CompositionStatus.FINAL);
-        composition.setType(HcxFhirUtils.getCompositionType()); //TODO IG
-        composition.setTitle("Coverage Eligibility Request");
-        composition.addAuthor().setResource(author);
+        composition.setType(HcxFhirUtils.getCompositionType(HcxDocumentType.CEResponse)); //TODO IG
+        composition.setTitle("Coverage Eligibility Response");
+        composition.addAuthor().setResource(insurer);
+        composition.setSubject(FHIRUtils.getReferenceToPatient(patient));
 
         FHIRUtils.addToBundleEntry(bundle, composition, false);
-        FHIRUtils.addToBundleEntry(bundle, author, true);
-        FHIRUtils.addToBundleEntry(bundle, patientResource, false);
-
-        composition.setSubject(patientRef);
-
-        Composition.SectionComponent section = composition.addSection();
-        section.setTitle("# Eligibility Request");
-        section.setCode(HcxFhirUtils.getCoverageEligibilityResourceType()); //TODO IG - Same as Composition.type?
-        CoverageEligibilityRequest cer = new CoverageEligibilityRequest();
-        cer.setId(UUID.randomUUID().toString()); //request id
-
-        section.getEntry().add(FHIRUtils.getReferenceToResource(cer));
-        FHIRUtils.addToBundleEntry(bundle, cer, false);
-
-
-        //load the eligibility request object
-        cer.setStatus(CoverageEligibilityRequest.EligibilityRequestStatus.ACTIVE);
-        cer.addPurpose(CoverageEligibilityRequest.EligibilityRequestPurpose.DISCOVERY);
-        cer.addIdentifier(FHIRUtils.getIdentifier(cer.getId(), hipPrefix, "coverage-eligibility-request"));
-        cer.setPatient(patientRef); //ref to patient resource
-
-        //set service period
-        Date start = Date.from(LocalDateTime.now().minusDays(1L).atZone(ZoneId.systemDefault()).toInstant());
-        Date end = Date.from(LocalDateTime.now().plusDays(1L).atZone(ZoneId.systemDefault()).toInstant());
-        cer.setServiced(FHIRUtils.newPeriod(start, end));
-
-        cer.setCreated(new Date());
-        cer.setProvider(FHIRUtils.getReferenceToResource(author));
-        Organization insurer = fhirParser.parseResource(Organization.class, FHIRUtils.loadOrganization("gic"));
         FHIRUtils.addToBundleEntry(bundle, insurer, true);
-        Reference insurerRef = FHIRUtils.getReferenceToResource(insurer);
-        cer.setInsurer(insurerRef); //set insurer
-
-        Coverage coverage = new Coverage();
-        coverage.setId(UUID.randomUUID().toString());
-        coverage.addIdentifier(FHIRUtils.getIdentifier("policy-"+patientResource.getId(), "gicofIndia", "policies"));
-        coverage.setStatus(Coverage.CoverageStatus.ACTIVE);
-        coverage.setSubscriber(patientRef); //if not the patient, then a different patient  resource should be created and embedded onto the bundle, with the right identifier
-        coverage.setSubscriberId("SN-"+patientResource.getId()); //
-        coverage.setBeneficiary(patientRef);
-        coverage.setRelationship(HcxFhirUtils.getRelationship("self"));
-        coverage.setPayor(Arrays.asList(insurerRef));
+        FHIRUtils.addToBundleEntry(bundle, provider, true);
+        FHIRUtils.addToBundleEntry(bundle, patient, false);
         FHIRUtils.addToBundleEntry(bundle, coverage, false);
 
-        CoverageEligibilityRequest.InsuranceComponent insuranceComponent = cer.addInsurance();
-        insuranceComponent.setFocal(true);
-        insuranceComponent.setCoverage(FHIRUtils.getReferenceToResource(coverage));
-
+        Composition.SectionComponent section = composition.addSection();
+        section.setTitle("# Eligibility Response");
+        section.setCode(HcxFhirUtils.getCoverageEligibilityResponseResourceType());
+        CoverageEligibilityResponse response = new CoverageEligibilityResponse();
+        response.setId(Utils.randomId());
+        section.getEntry().add(FHIRUtils.getReferenceToResource(response));
+        FHIRUtils.addToBundleEntry(bundle, response, false);
+
+        response.addIdentifier(FHIRUtils.getIdentifier(response.getId(), insurerPrefix, "coverage-eligibility-response"));
+        response.setStatus(CoverageEligibilityResponse.EligibilityResponseStatus.ACTIVE);
+        cer.getPurpose().forEach(purpose ->
+                response.addPurpose(CoverageEligibilityResponse.EligibilityResponsePurpose.fromCode(purpose.getValue().toCode())));
+        response.setPatient(FHIRUtils.getReferenceToPatient(patient));
+        response.setServiced(cer.getServiced().copy());
+        response.setCreated(date);
+        response.setRequestor(FHIRUtils.getReferenceToResource(provider));
+        //the request lives in another bundle, so it is referred to by id and identifier
+        response.setRequest(new Reference("CoverageEligibilityRequest/" + cer.getId())
+                .setIdentifier(cer.getIdentifierFirstRep().copy()));
+        response.setInsurer(FHIRUtils.getReferenceToResource(insurer));
+        setOutcome(response, coverage);
         return bundle;
     }
 
+    /**
+     * Mostly complete, in-force responses, with some partial ones, policies that are not in-force, requests the
+     * insurer could not process and queued ones.
+     */
+    private void setOutcome(CoverageEligibilityResponse response, Coverage coverage) {
+        int pick = Utils.randomInt(0, 100);
+        if (pick < 75) {
+            response.setOutcome(Enumerations.RemittanceOutcome.COMPLETE);
+            response.setDisposition("Policy is currently in-force.");
+            addInsurance(response, coverage, true);
+        } else if (pick < 85) {
+            response.setOutcome(Enumerations.RemittanceOutcome.PARTIAL);
+            response.setDisposition("Policy is in-force, some benefits could not be determined.");
+            addInsurance(response, coverage, true);
+        } else if (pick < 92) {
+            //the request was processed, the answer is that the policy does not cover the patient now
+            response.setOutcome(Enumerations.RemittanceOutcome.COMPLETE);
+            response.setDisposition("Policy is not in-force.");
+            addInsurance(response, coverage, false);
+        } else if (pick < 95) {
+            //the request itself could not be processed, so nothing is said about the policy
+            response.setOutcome(Enumerations.RemittanceOutcome.ERROR);
+            if (Utils.randomBool()) {
+                response.setDisposition("Request could not be processed, it has no identifier.");
+                response.addError().setCode(new CodeableConcept(new Coding(CS_ADJUDICATION_ERROR, "a001", "Missing Identifier")));
+            } else {
+                response.setDisposition("Request could not be processed, it has no creation date.");
+                response.addError().setCode(new CodeableConcept(new Coding(CS_ADJUDICATION_ERROR, "a002", "Missing Creation Date")));
+            }
+        } else {
+            response.setOutcome(Enumerations.RemittanceOutcome.QUEUED);
+            response.setDisposition("Eligibility check is queued for manual review.");
+        }
+    }
+
+    private void addInsurance(CoverageEligibilityResponse response, Coverage coverage, boolean inforce) {
+        CoverageEligibilityResponse.InsuranceComponent insurance = response.addInsurance();
+        insurance.setCoverage(FHIRUtils.getReferenceToResource(coverage));
+        insurance.setInforce(inforce);
+        if (!inforce) {
+            return;
+        }
+        CoverageEligibilityResponse.ItemsComponent item = insurance.addItem();
+        item.setCategory(new CodeableConcept(new Coding(CS_BENEFIT_CATEGORY, "30", "Health Benefit Plan Coverage")));
+        item.setNetwork(new CodeableConcept(new Coding(CS_BENEFIT_NETWORK, "in", "In Network")));
+        item.setUnit(new CodeableConcept(new Coding(CS_BENEFIT_UNIT, "individual", "Individual")));
+        item.setTerm(new CodeableConcept(new Coding(CS_BENEFIT_TERM, "annual", "Annual")));
+        int allowed = Utils.randomInt(1, 11) * 50_000;
+        int used = Utils.randomInt(0, allowed / 1000 + 1) * 1000;
+        item.addBenefit()
+                .setType(new CodeableConcept(new Coding(CS_BENEFIT_TYPE, "benefit", "Benefit")))
+                .setAllowed(inr(allowed))
+                .setUsed(inr(used));
+    }
+
+    private static Money inr(int amount) {
+        Money money = new Money();
+        money.setValue(BigDecimal.valueOf(amount));
+        money.setCurrency("INR");
+        return money;
+    }
 }
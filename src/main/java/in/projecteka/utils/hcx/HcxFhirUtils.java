@@ -11,10 +11,14 @@ import static in.projecteka.utils.hcx.Constants.VS_FHIR_SUBSCRIBER_REL;
 
 public class HcxFhirUtils {
     static CodeableConcept getCompositionType() {
+        return getCompositionType(HcxDocumentType.CERequest);
+    }
+
+    static CodeableConcept getCompositionType(HcxDocumentType documentType) {
         return new CodeableConcept(
                 new Coding(SYS_HCX_DOCTYPE,
-                        HcxDocumentType.CERequest.getCode(),
-                        HcxDocumentType.CERequest.getDisplay()));
+                        documentType.getCode(),
+                        documentType.getDisplay()));
     }
 
     public static CodeableConcept getCoverageEligibilityResourceType() {
@@ -24,6 +28,13 @@ public class HcxFhirUtils {
                         "Coverage Eligibility Request"));
     }
 
+    public static CodeableConcept getCoverageEligibilityResponseResourceType() {
+        return new CodeableConcept(
+                new Coding(Constants.VS_FHIR_RES_TYPE,
+                        ResourceType.CoverageEligibilityResponse.name(),
+                        "Coverage Eligibility Response"));
+    }
+
     public static Identifier createInsurerIdentifier(String insurerDomain, String value) {
         Identifier identifier = new Identifier();
         identifier.setSystem(String.format("%s/beneficiaries", insurerDomain));
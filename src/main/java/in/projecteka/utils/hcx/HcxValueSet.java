@@ -1,22 +1,26 @@
 package in.projecteka.utils.hcx;
 
-import ca.uhn.fhir.context.FhirContext;
 import com.opencsv.CSVParser;
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
 import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.common.Dates;
 import in.projecteka.utils.common.DocumentGenerator;
 import in.projecteka.utils.common.Utils;
+import in.projecteka.utils.output.OutputSink;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.hl7.fhir.r4.model.Enumerations;
 import org.hl7.fhir.r4.model.ValueSet;
 
-import java.io.Reader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -28,7 +32,30 @@ public class HcxValueSet implements DocumentGenerator {
 
     @Override
     public void execute(DocRequest docRequest) throws Exception {
-        LocalDateTime dateTime = docRequest.getFromDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+        if (ValueSetBatch.isBatch(docRequest.getCsvPath())) {
+            new ValueSetBatch(this).execute(docRequest);
+        } else {
+            convert(docRequest);
+        }
+        if (docRequest.getSnapshotPath() != null) {
+            writeSnapshot(ValueSetBatch.csvFiles(docRequest.getCsvPath()), docRequest.getSnapshotPath());
+        }
+    }
+
+    private void writeSnapshot(List<Path> csvFiles, Path snapshotPath) throws IOException {
+        ValueSetIndex.Builder builder = ValueSetIndex.builder();
+        for (Path csvFile : csvFiles) {
+            builder.addCsv(csvFile);
+        }
+        ValueSetIndex index = builder.build();
+        ValueSetSnapshot.write(index, snapshotPath);
+        System.out.println(String.format("Wrote snapshot of %d codes to file:%s", index.size(), snapshotPath));
+    }
+
+    /**
+     * Converts the single csv of the request.
+     */
+    Conversion convert(DocRequest docRequest) throws Exception {
         System.out.println("CSV file:" + docRequest.getCsvPath());
         if (!Files.exists(docRequest.getCsvPath().toAbsolutePath())) {
             throw new RuntimeException("ValueSet source CSV File does not exist");
@@ -37,32 +64,61 @@ public class HcxValueSet implements DocumentGenerator {
             throw new RuntimeException("ValueSet source CSV File does not exist");
         }
 
-        String valueSetName = Utils.removeFileExtension(docRequest.getCsvPath().getFileName().toString(), true);
+        Date today = Dates.startOfDay(docRequest.getFromDate());
+
+        try (CSVReader csvReader = openCsv(docRequest.getCsvPath())) {
+            ValueSet valueSet = readHeader(csvReader, docRequest.getCsvPath(), today);
+            String valueSetName = valueSet.getName();
+
+            ValueSet.ValueSetExpansionComponent expansion = new ValueSet.ValueSetExpansionComponent();
+            valueSet.setExpansion(expansion);
+
+            String fileName = String.format("hcx-vs-%s-%s.json",valueSetName, Utils.formatDate(today, "yyyyMMdd"));
+            if (docRequest.isStreaming()) {
+                long count = streamCodes(csvReader, valueSet, docRequest.getSink(), fileName);
+                return new Conversion(fileName, count);
+            }
+
+            //lines starting from 6 are codes
+            String[] codes;
+            while ((codes = csvReader.readNext()) != null) {
+                if (codes.length > 1) {
+                    ValueSet.ValueSetExpansionContainsComponent expandComponent = expansion.addContains();
+                    expandComponent.setCode(codes[0]);
+                    expandComponent.setDisplay(codes[1]);
+                }
+            }
+            docRequest.getSink().write(fileName, valueSet);
+            return new Conversion(fileName, expansion.getContains().size());
+        }
+    }
+
+    /**
+     * Reads the title and header lines of the csv into a ValueSet without codes.
+     * The reader is left at the first code.
+     */
+    static ValueSet readHeader(CSVReader csvReader, Path csvPath, Date date) throws IOException {
+        String valueSetName = Utils.removeFileExtension(csvPath.getFileName().toString(), true);
         ValueSet valueSet = new ValueSet();
         valueSet.setVersion("1.0");
         valueSet.setName(valueSetName);
         valueSet.setStatus(Enumerations.PublicationStatus.DRAFT);
-        //Date today = Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
-        Date today = Date.from(dateTime.toLocalDate().atStartOfDay(ZoneId.systemDefault()).toInstant());
-        valueSet.setDate(today);
+        valueSet.setDate(date);
         valueSet.setPublisher("HCX");
         valueSet.setPublisher("HCX");
         valueSet.setDescription(String.format("%s - Edit Description", valueSetName));
 
-        Reader reader = Files.newBufferedReader(docRequest.getCsvPath());
-        CSVParser parser = new CSVParserBuilder()
-                .withSeparator(',')
-                .withIgnoreQuotations(true)
-                .build();
-        CSVReader csvReader = new CSVReaderBuilder(reader)
-                .withSkipLines(0)
-                .withCSVParser(parser)
-                .build();
-        List<String[]> lines = csvReader.readAll();
-        //line 2-3 are headers
-        List<String[]> headers = lines.subList(1, 4);
-        //lines starting from 6 are codes
-        List<String[]> codeList = lines.subList(5, lines.size());
+        //line 1 is a title, lines 2-4 are headers and line 5 names the columns
+        List<String[]> headers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String[] line = csvReader.readNext();
+            if (line == null) {
+                throw new RuntimeException("ValueSet source CSV File has no codes section: " + csvPath);
+            }
+            if (i >= 1 && i <= 3) {
+                headers.add(line);
+            }
+        }
 
         if (headers.size() >= 1) {
             if (headers.get(0).length > 0) {
@@ -93,28 +149,46 @@ public class HcxValueSet implements DocumentGenerator {
                 }
             }
         }
+        return valueSet;
+    }
 
-        ValueSet.ValueSetExpansionComponent expansion = new ValueSet.ValueSetExpansionComponent();
-        valueSet.setExpansion(expansion);
-
-        for (String[] codes : codeList) {
-            if (codes.length > 1) {
-                ValueSet.ValueSetExpansionContainsComponent expandComponent = expansion.addContains();
-                expandComponent.setCode(codes[0]);
-                expandComponent.setDisplay(codes[1]);
+    /**
+     * Writes the ValueSet to the sink while reading the codes, keeping only the current line in memory.
+     */
+    private long streamCodes(CSVReader csvReader, ValueSet valueSet, OutputSink sink, String fileName) throws Exception {
+        System.out.println("Streaming ValueSet:" + fileName);
+        try (Writer writer = new OutputStreamWriter(sink.openDocument(fileName), StandardCharsets.UTF_8);
+             StreamingValueSetWriter valueSetWriter = new StreamingValueSetWriter(valueSet, writer)) {
+            String[] codes;
+            while ((codes = csvReader.readNext()) != null) {
+                if (codes.length > 1) {
+                    valueSetWriter.addCode(codes[0], codes[1]);
+                }
             }
+            System.out.println(String.format("Wrote %d codes", valueSetWriter.getCount()));
+            return valueSetWriter.getCount();
         }
+    }
 
-        FhirContext fhirContext = FhirContext.forR4();
-        String encodedString = fhirContext.newJsonParser().encodeResourceToString(valueSet);
+    static CSVReader openCsv(Path csvPath) throws IOException {
+        CSVParser parser = new CSVParserBuilder()
+                .withSeparator(',')
+                .withIgnoreQuotations(true)
+                .build();
+        return new CSVReaderBuilder(Files.newBufferedReader(csvPath))
+                .withSkipLines(0)
+                .withCSVParser(parser)
+                .build();
+    }
 
-        String fileName = String.format("hcx-vs-%s-%s.json",valueSetName, Utils.formatDate(today, "yyyyMMdd"));
-        Path path = Paths.get(docRequest.getOutPath().toString(), fileName);
-        System.out.println("Saving ValueSet to file:" + path.toString());
-        Utils.saveToFile(path, encodedString);
+    @Getter
+    @AllArgsConstructor
+    static class Conversion {
+        private final String fileName;
+        private final long codes;
     }
 
-    private String readLineValue(String[] parts, String key) {
+    private static String readLineValue(String[] parts, String key) {
         if (parts[0].equalsIgnoreCase(key)) {
             return parts.length > 1 ? parts[1] : "";
         }
@@ -0,0 +1,167 @@
+package in.projecteka.utils.hcx;
+
+import in.projecteka.utils.common.FhirRuntime;
+import in.projecteka.utils.common.Utils;
+import org.hl7.fhir.r4.model.ValueSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Writes a ValueSet as json one expansion code at a time, so the codes never have to be held in memory.
+ * Everything but expansion.contains is encoded by the FHIR parser as usual; the header is encoded with a
+ * single placeholder code, which is where the streamed codes are spliced in.
+ */
+public class StreamingValueSetWriter implements Closeable {
+    private static final String PLACEHOLDER = "hcx-streaming-placeholder";
+    private static final String PLACEHOLDER_ENTRY = "{\"code\":\"" + PLACEHOLDER + "\"}";
+    //escapes of the json writer behind the FHIR parser (gson): short forms where json has them, unicode escapes
+    //for the other control characters
+    private static final String[] ESCAPES = new String[128];
+    private static final String LINE_SEPARATOR_ESCAPE = "\\u2028";
+    private static final String PARAGRAPH_SEPARATOR_ESCAPE = "\\u2029";
+    //every character that is escaped, to check the table against the parser
+    private static final String ESCAPED_CHARACTERS;
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = String.format("\\u%04x", c);
+        }
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\f'] = "\\f";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\t'] = "\\t";
+        StringBuilder escaped = new StringBuilder();
+        for (char c = 1; c < ESCAPES.length; c++) {
+            if (ESCAPES[c] != null) {
+                escaped.append(c);
+            }
+        }
+        ESCAPED_CHARACTERS = escaped.append('\u2028').append('\u2029').toString();
+    }
+
+    private static volatile boolean escapesChecked = false;
+
+    private final Writer writer;
+    private final String suffix;
+    private long count = 0;
+    private boolean written = false;
+
+    /**
+     * @param header ValueSet without expansion codes. It is not modified.
+     */
+    public StreamingValueSetWriter(ValueSet header, Writer writer) throws IOException {
+        ValueSet template = header.copy();
+        if (!template.hasExpansion()) {
+            template.setExpansion(new ValueSet.ValueSetExpansionComponent());
+        }
+        template.getExpansion().getContains().clear();
+        template.getExpansion().addContains().setCode(PLACEHOLDER);
+        String encoded = FhirRuntime.jsonParser().encodeResourceToString(template);
+        int position = encoded.indexOf(PLACEHOLDER_ENTRY);
+        if (position < 0) {
+            throw new RuntimeException("Can not stream ValueSet, unexpected json encoding");
+        }
+        checkEscapes();
+        this.writer = writer;
+        this.suffix = encoded.substring(position + PLACEHOLDER_ENTRY.length());
+        writer.write(encoded, 0, position);
+    }
+
+    /**
+     * Blank values are left out, as the FHIR parser does: json may not have empty strings, and a code without
+     * either value is not written at all. It is still counted, like an empty element of a ValueSet in memory.
+     */
+    public void addCode(String code, String display) throws IOException {
+        count++;
+        boolean hasCode = !Utils.isBlank(code);
+        boolean hasDisplay = !Utils.isBlank(display);
+        if (!hasCode && !hasDisplay) {
+            return;
+        }
+        if (written) {
+            writer.write(',');
+        }
+        writer.write('{');
+        if (hasCode) {
+            writer.write("\"code\":");
+            writeString(code);
+        }
+        if (hasDisplay) {
+            writer.write(hasCode ? ",\"display\":" : "\"display\":");
+            writeString(display);
+        }
+        writer.write('}');
+        written = true;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Completes the json. The underlying writer is flushed but stays open.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.write(suffix);
+        writer.flush();
+    }
+
+    private void writeString(String value) throws IOException {
+        writeString(value, writer);
+    }
+
+    private static void writeString(String value, Writer writer) throws IOException {
+        writer.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c < ESCAPES.length) {
+                escape = ESCAPES[c];
+            } else if (c == '\u2028') {
+                escape = LINE_SEPARATOR_ESCAPE;
+            } else if (c == '\u2029') {
+                escape = PARAGRAPH_SEPARATOR_ESCAPE;
+            } else {
+                continue;
+            }
+            if (escape != null) {
+                writer.write(value, start, i - start);
+                writer.write(escape);
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+
+    /**
+     * Streamed and in-memory conversions must give the same json, so the escapes are checked against the parser
+     * once: a code made of every escaped character has to come out of both the same way.
+     */
+    private static void checkEscapes() throws IOException {
+        if (escapesChecked) {
+            return;
+        }
+        ValueSet.ValueSetExpansionContainsComponent probe = new ValueSet.ValueSetExpansionContainsComponent();
+        probe.setCode("a" + ESCAPED_CHARACTERS + "z");
+        ValueSet valueSet = new ValueSet();
+        valueSet.getExpansion().addContains(probe);
+        String encoded = FhirRuntime.jsonParser().encodeResourceToString(valueSet);
+        StringWriter expected = new StringWriter();
+        expected.write("{\"code\":");
+        writeString(probe.getCode(), expected);
+        expected.write('}');
+        if (!encoded.contains(expected.toString())) {
+            throw new RuntimeException("Can not stream ValueSet, json escapes differ from the FHIR parser: " + encoded);
+        }
+        escapesChecked = true;
+    }
+}
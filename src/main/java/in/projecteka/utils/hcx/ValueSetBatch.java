@@ -0,0 +1,213 @@
+package in.projecteka.utils.hcx;
+
+import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.common.Dates;
+import in.projecteka.utils.common.GenerationEngine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts every csv of a directory (or matching a glob like /data/valuesets/icd-*.csv) across the workers.
+ * <p>
+ * When the value sets are written as json files to the output directory (-Doutput=files, or streaming), conversions
+ * are recorded in a manifest there, keyed by csv file name with the sha-256 of the csv, the date and streaming
+ * options, the number of codes and the name of the json produced from it. A csv is skipped when its hash and the
+ * options are unchanged and that json is still there, so re-running over the same directory only converts what
+ * changed. Other outputs convert every csv, as earlier documents can not be told apart from the new ones.
+ */
+class ValueSetBatch {
+    static final String MANIFEST = "hcx-vs-manifest.properties";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final HcxValueSet converter;
+
+    ValueSetBatch(HcxValueSet converter) {
+        this.converter = converter;
+    }
+
+    static boolean isBatch(Path csvPath) {
+        return Files.isDirectory(csvPath) || isGlob(csvPath);
+    }
+
+    void execute(DocRequest request) throws Exception {
+        List<Path> files = listFiles(request.getCsvPath());
+        if (files.isEmpty()) {
+            throw new RuntimeException("No ValueSet source CSV files found at " + request.getCsvPath());
+        }
+        boolean incremental = request.getSink().writesFiles();
+        String options = String.format("%s,%s",
+                Dates.format(Dates.startOfDay(request.getFromDate()), "yyyy-MM-dd"), request.isStreaming());
+        Path manifestPath = Paths.get(request.getOutPath().toString(), MANIFEST);
+        Properties manifest = incremental ? loadManifest(manifestPath) : new Properties();
+        Result[] results = new Result[files.size()];
+        GenerationEngine.run(files.size(), request.getParallelism(), "value sets",
+                i -> results[i] = convert(request, files.get(i), options, manifest));
+
+        //entries of csvs outside of this batch are kept
+        Properties updated = new Properties();
+        updated.putAll(manifest);
+        List<Result> failed = new ArrayList<>();
+        for (Result result : results) {
+            if (result.error != null) {
+                failed.add(result);
+                updated.remove(result.csv.getFileName().toString());
+            } else {
+                updated.setProperty(result.csv.getFileName().toString(),
+                        String.format("%s,%s,%d,%s", result.hash, options, result.codes, result.fileName));
+            }
+        }
+        if (incremental) {
+            saveManifest(manifestPath, updated);
+        }
+        printSummary(results);
+        if (!failed.isEmpty()) {
+            throw new RuntimeException(String.format("%d of %d value sets failed, first: %s",
+                    failed.size(), results.length, failed.get(0).error.getMessage()));
+        }
+    }
+
+    /**
+     * @param options the date and streaming options of the run, which change the json produced from a csv
+     */
+    private Result convert(DocRequest request, Path csv, String options, Properties manifest) {
+        long start = System.nanoTime();
+        Result result = new Result(csv);
+        try {
+            result.hash = hash(csv);
+            String previous = manifest.getProperty(csv.getFileName().toString());
+            if (previous != null) {
+                //sha-256,date,streaming,codes,json
+                String[] parts = previous.split(",", 5);
+                if (parts.length == 5 && parts[0].equals(result.hash)
+                        && (parts[1] + "," + parts[2]).equals(options)
+                        && Files.exists(Paths.get(request.getOutPath().toString(), parts[4]))) {
+                    result.codes = Long.parseLong(parts[3]);
+                    result.fileName = parts[4];
+                    result.skipped = true;
+                    return result;
+                }
+            }
+            HcxValueSet.Conversion conversion = converter.convert(request.toBuilder().csvPath(csv).build());
+            result.fileName = conversion.getFileName();
+            result.codes = conversion.getCodes();
+        } catch (Exception e) {
+            result.error = e;
+        } finally {
+            result.millis = (System.nanoTime() - start) / 1_000_000;
+        }
+        return result;
+    }
+
+    /**
+     * The csvs a csv path stands for: itself, or the csvs of the directory or glob.
+     */
+    static List<Path> csvFiles(Path csvPath) throws IOException {
+        return isBatch(csvPath) ? listFiles(csvPath) : Collections.singletonList(csvPath);
+    }
+
+    private static List<Path> listFiles(Path csvPath) throws IOException {
+        Path directory;
+        PathMatcher matcher;
+        if (isGlob(csvPath)) {
+            directory = csvPath.getParent() != null ? csvPath.getParent() : Paths.get(".");
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + csvPath.getFileName());
+        } else {
+            directory = csvPath;
+            matcher = path -> path.toString().toLowerCase().endsWith(".csv");
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(path.getFileName()))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isGlob(Path csvPath) {
+        Path fileName = csvPath.getFileName();
+        return fileName != null && fileName.toString().matches(".*[*?\\[{].*");
+    }
+
+    private static String hash(Path path) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static Properties loadManifest(Path path) throws IOException {
+        Properties manifest = new Properties();
+        if (Files.exists(path)) {
+            try (Reader reader = Files.newBufferedReader(path)) {
+                manifest.load(reader);
+            }
+        }
+        return manifest;
+    }
+
+    private static void saveManifest(Path path, Properties manifest) throws IOException {
+        Path temp = Paths.get(path.toString() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            manifest.store(writer, "csv=sha-256,date,streaming,codes,json");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void printSummary(Result[] results) {
+        long codes = 0;
+        long millis = 0;
+        int converted = 0;
+        int skipped = 0;
+        System.out.println(String.format("%-40s %-10s %12s %10s  %s", "CSV", "STATUS", "CODES", "MS", "VALUESET"));
+        for (Result result : results) {
+            String status = result.error != null ? "failed" : result.skipped ? "unchanged" : "converted";
+            System.out.println(String.format("%-40s %-10s %12d %10d  %s", result.csv.getFileName(), status,
+                    result.codes, result.millis, result.error != null ? result.error.getMessage() : result.fileName));
+            codes += result.codes;
+            millis += result.millis;
+            converted += result.error == null && !result.skipped ? 1 : 0;
+            skipped += result.skipped ? 1 : 0;
+        }
+        System.out.println(String.format("%d converted, %d unchanged, %d failed, %d codes, %d ms in total",
+                converted, skipped, results.length - converted - skipped, codes, millis));
+    }
+
+    private static class Result {
+        private final Path csv;
+        private String hash;
+        private String fileName;
+        private long codes;
+        private long millis;
+        private boolean skipped;
+        private Exception error;
+
+        Result(Path csv) {
+            this.csv = csv;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package in.projecteka.utils.hcx;
+
+import com.opencsv.CSVReader;
+import in.projecteka.utils.common.FhirRuntime;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.ValueSet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Read-only index of the codes of one or more ValueSets, keyed by system and code.
+ * <p>
+ * Codes and displays are kept in a single character pool and addressed through int tables, instead of one
+ * object per code:
+ * <ul>
+ * <li>entries: per code its offset in the pool, code length, display length (-1 without display) and hash,
+ * sorted by system and then code</li>
+ * <li>systems: per system the index of its first entry</li>
+ * <li>table: open addressing hash table of entry index + 1 (0 is empty)</li>
+ * </ul>
+ * contains and lookupDisplay are a hash probe, prefix search a binary search over the sorted entries.
+ * Codes without a system of their own belong to the url of their ValueSet.
+ */
+public class ValueSetIndex {
+    static final int ENTRY_INTS = 4;
+    private static final int OFFSET = 0;
+    private static final int CODE_LENGTH = 1;
+    private static final int DISPLAY_LENGTH = 2;
+    private static final int HASH = 3;
+
+    private final String[] systems;
+    private final Map<String, Integer> systemIds;
+    private final IntBuffer systemStarts;
+    private final IntBuffer entries;
+    private final IntBuffer table;
+    private final CharBuffer pool;
+    private final int mask;
+
+    ValueSetIndex(String[] systems, IntBuffer systemStarts, IntBuffer entries, IntBuffer table, CharBuffer pool) {
+        this.systems = systems;
+        this.systemIds = new HashMap<>();
+        for (int i = 0; i < systems.length; i++) {
+            systemIds.put(systems[i], i);
+        }
+        this.systemStarts = systemStarts;
+        this.entries = entries;
+        this.table = table;
+        this.pool = pool;
+        this.mask = table.capacity() - 1;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Indexes ValueSet json files (as written by HcxValueSet) and ValueSet csvs (as read by HcxValueSet).
+     */
+    public static ValueSetIndex load(List<Path> files) throws IOException {
+        Builder builder = builder();
+        for (Path file : files) {
+            if (file.getFileName().toString().toLowerCase().endsWith(".csv")) {
+                builder.addCsv(file);
+            } else {
+                try (Reader reader = Files.newBufferedReader(file)) {
+                    builder.add(FhirRuntime.jsonParser().parseResource(ValueSet.class, reader));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return entries.capacity() / ENTRY_INTS;
+    }
+
+    public List<String> getSystems() {
+        return Collections.unmodifiableList(Arrays.asList(systems));
+    }
+
+    public boolean contains(String system, String code) {
+        return find(system, code) >= 0;
+    }
+
+    /**
+     * @return display of the code, null if the code is unknown or has no display
+     */
+    public String lookupDisplay(String system, String code) {
+        int entry = find(system, code);
+        return entry >= 0 ? display(entry) : null;
+    }
+
+    /**
+     * Codes of the system starting with the prefix, in code order.
+     */
+    public List<Coding> findByPrefix(String system, String prefix, int limit) {
+        Integer systemId = systemIds.get(system);
+        if (systemId == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        int from = systemStarts.get(systemId);
+        int to = systemStarts.get(systemId + 1);
+        //lower bound of the prefix
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareCode(mid, prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        List<Coding> codings = new ArrayList<>();
+        for (int entry = low; entry < to && codings.size() < limit && startsWith(entry, prefix); entry++) {
+            codings.add(new Coding(system, code(entry), display(entry)));
+        }
+        return codings;
+    }
+
+    private int find(String system, String code) {
+        Integer systemId = systemIds.get(system);
+        if (systemId == null || code == null) {
+            return -1;
+        }
+        int hash = hash(systemId, code);
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table.get(slot) - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            int base = entry * ENTRY_INTS;
+            if (entries.get(base + HASH) == hash
+                    && entry >= systemStarts.get(systemId) && entry < systemStarts.get(systemId + 1)
+                    && equalsCode(entry, code)) {
+                return entry;
+            }
+        }
+    }
+
+    private boolean equalsCode(int entry, String code) {
+        int base = entry * ENTRY_INTS;
+        int length = entries.get(base + CODE_LENGTH);
+        if (length != code.length()) {
+            return false;
+        }
+        int offset = entries.get(base + OFFSET);
+        for (int i = 0; i < length; i++) {
+            if (pool.get(offset + i) != code.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int compareCode(int entry, String value) {
+        int base = entry * ENTRY_INTS;
+        int offset = entries.get(base + OFFSET);
+        int length = entries.get(base + CODE_LENGTH);
+        int common = Math.min(length, value.length());
+        for (int i = 0; i < common; i++) {
+            int diff = pool.get(offset + i) - value.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - value.length();
+    }
+
+    private boolean startsWith(int entry, String prefix) {
+        int base = entry * ENTRY_INTS;
+        if (entries.get(base + CODE_LENGTH) < prefix.length()) {
+            return false;
+        }
+        int offset = entries.get(base + OFFSET);
+        for (int i = 0; i < prefix.length(); i++) {
+            if (pool.get(offset + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String code(int entry) {
+        int base = entry * ENTRY_INTS;
+        return read(entries.get(base + OFFSET), entries.get(base + CODE_LENGTH));
+    }
+
+    private String display(int entry) {
+        int base = entry * ENTRY_INTS;
+        int length = entries.get(base + DISPLAY_LENGTH);
+        return length < 0 ? null : read(entries.get(base + OFFSET) + entries.get(base + CODE_LENGTH), length);
+    }
+
+    private String read(int offset, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = pool.get(offset + i);
+        }
+        return new String(chars);
+    }
+
+    static int hash(int systemId, String code) {
+        int h = code.hashCode() * 0x9E3779B1 + systemId;
+        return h ^ (h >>> 16);
+    }
+
+    String[] systems() {
+        return systems;
+    }
+
+    IntBuffer systemStarts() {
+        return systemStarts.duplicate();
+    }
+
+    IntBuffer entries() {
+        return entries.duplicate();
+    }
+
+    IntBuffer table() {
+        return table.duplicate();
+    }
+
+    CharBuffer pool() {
+        return pool.duplicate();
+    }
+
+    /**
+     * Collects codes and lays them out into the index tables. Later duplicates of a code are ignored.
+     */
+    public static class Builder {
+        private final Map<String, TreeMap<String, String>> codes = new LinkedHashMap<>();
+
+        public Builder add(String system, String code, String display) {
+            if (system == null || code == null) {
+                throw new RuntimeException("Indexed codes need a system and a code");
+            }
+            codes.computeIfAbsent(system, s -> new TreeMap<>()).putIfAbsent(code, display);
+            return this;
+        }
+
+        public Builder add(ValueSet valueSet) {
+            for (ValueSet.ValueSetExpansionContainsComponent contains : valueSet.getExpansion().getContains()) {
+                add(contains, valueSet.getUrl());
+            }
+            return this;
+        }
+
+        public Builder addCsv(Path csvPath) throws IOException {
+            try (CSVReader csvReader = HcxValueSet.openCsv(csvPath)) {
+                String system = HcxValueSet.readHeader(csvReader, csvPath, new Date()).getUrl();
+                String[] line;
+                while ((line = csvReader.readNext()) != null) {
+                    if (line.length > 1) {
+                        add(system, line[0], line[1]);
+                    }
+                }
+            }
+            return this;
+        }
+
+        private void add(ValueSet.ValueSetExpansionContainsComponent contains, String defaultSystem) {
+            if (contains.hasCode()) {
+                add(contains.hasSystem() ? contains.getSystem() : defaultSystem, contains.getCode(),
+                        contains.hasDisplay() ? contains.getDisplay() : null);
+            }
+            for (ValueSet.ValueSetExpansionContainsComponent nested : contains.getContains()) {
+                add(nested, defaultSystem);
+            }
+        }
+
+        public ValueSetIndex build() {
+            String[] systems = codes.keySet().toArray(new String[0]);
+            int size = 0;
+            long chars = 0;
+            for (TreeMap<String, String> systemCodes : codes.values()) {
+                size += systemCodes.size();
+                for (Map.Entry<String, String> code : systemCodes.entrySet()) {
+                    chars += code.getKey().length() + (code.getValue() != null ? code.getValue().length() : 0);
+                }
+            }
+            if (chars > Integer.MAX_VALUE) {
+                throw new RuntimeException("Too many codes for a single index");
+            }
+            IntBuffer systemStarts = IntBuffer.allocate(systems.length + 1);
+            IntBuffer entries = IntBuffer.allocate(size * ENTRY_INTS);
+            IntBuffer table = IntBuffer.allocate(tableSize(size));
+            CharBuffer pool = CharBuffer.allocate((int) chars);
+            int mask = table.capacity() - 1;
+            int entry = 0;
+            for (int systemId = 0; systemId < systems.length; systemId++) {
+                systemStarts.put(systemId, entry);
+                for (Map.Entry<String, String> code : codes.get(systems[systemId]).entrySet()) {
+                    int base = entry * ENTRY_INTS;
+                    int hash = hash(systemId, code.getKey());
+                    entries.put(base + OFFSET, pool.position());
+                    entries.put(base + CODE_LENGTH, code.getKey().length());
+                    entries.put(base + DISPLAY_LENGTH, code.getValue() != null ? code.getValue().length() : -1);
+                    entries.put(base + HASH, hash);
+                    pool.put(code.getKey());
+                    if (code.getValue() != null) {
+                        pool.put(code.getValue());
+                    }
+                    int slot = hash & mask;
+                    while (table.get(slot) != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table.put(slot, entry + 1);
+                    entry++;
+                }
+            }
+            systemStarts.put(systems.length, entry);
+            pool.clear();
+            return new ValueSetIndex(systems, systemStarts, entries, table, pool);
+        }
+
+        /**
+         * Power of two with a load factor of at most 0.5.
+         */
+        private static int tableSize(int size) {
+            int tableSize = 2;
+            while (tableSize < size * 2L) {
+                tableSize <<= 1;
+            }
+            return tableSize;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package in.projecteka.utils.hcx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary snapshot of a {@link ValueSetIndex}: the index tables written as they are, so that a snapshot can be
+ * memory mapped and queried in place, without parsing anything but the list of systems.
+ * <pre>
+ * magic      8 bytes  "HCXVSIDX"
+ * version    int
+ * counts     int systems, int entries, int table size, int pool chars
+ * systems    per system: int length, utf-8 bytes; padded to a multiple of 4 bytes
+ * starts     (systems + 1) ints
+ * entries    entries * 4 ints
+ * table      table size ints
+ * pool       pool chars chars
+ * </pre>
+ * All numbers are big endian.
+ */
+public class ValueSetSnapshot {
+    private static final byte[] MAGIC = "HCXVSIDX".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    public static void write(ValueSetIndex index, Path path) throws IOException {
+        Path temp = Paths.get(path.toString() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            String[] systems = index.systems();
+            buffer.put(MAGIC).putInt(VERSION)
+                    .putInt(systems.length)
+                    .putInt(index.size())
+                    .putInt(index.table().capacity())
+                    .putInt(index.pool().capacity());
+            for (String system : systems) {
+                byte[] bytes = system.getBytes(StandardCharsets.UTF_8);
+                ensureRemaining(channel, buffer, 4 + bytes.length + 3);
+                buffer.putInt(bytes.length).put(bytes);
+                while (buffer.position() % 4 != 0) {
+                    buffer.put((byte) 0);
+                }
+            }
+            writeInts(channel, buffer, index.systemStarts());
+            writeInts(channel, buffer, index.entries());
+            writeInts(channel, buffer, index.table());
+            CharBuffer pool = index.pool();
+            while (pool.hasRemaining()) {
+                ensureRemaining(channel, buffer, 2);
+                CharBuffer chars = buffer.asCharBuffer();
+                int count = Math.min(chars.remaining(), pool.remaining());
+                chars.put(pool.slice().limit(count));
+                pool.position(pool.position() + count);
+                buffer.position(buffer.position() + count * 2);
+            }
+            flush(channel, buffer);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps the snapshot read-only. The index reads straight from the mapping, so the codes stay off heap and
+     * pages are only loaded as they are looked up.
+     */
+    public static ValueSetIndex map(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new RuntimeException("ValueSet snapshot is too large to map: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || buffer.getInt() != VERSION) {
+            throw new RuntimeException("Not a ValueSet snapshot: " + path);
+        }
+        int systemCount = buffer.getInt();
+        int entryCount = buffer.getInt();
+        int tableSize = buffer.getInt();
+        int poolChars = buffer.getInt();
+        String[] systems = new String[systemCount];
+        for (int i = 0; i < systemCount; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            systems[i] = new String(bytes, StandardCharsets.UTF_8);
+            buffer.position((buffer.position() + 3) & ~3);
+        }
+        IntBuffer systemStarts = slice(buffer, (systemCount + 1) * 4).asIntBuffer();
+        IntBuffer entries = slice(buffer, entryCount * ValueSetIndex.ENTRY_INTS * 4).asIntBuffer();
+        IntBuffer table = slice(buffer, tableSize * 4).asIntBuffer();
+        CharBuffer pool = slice(buffer, poolChars * 2).asCharBuffer();
+        return new ValueSetIndex(systems, systemStarts, entries, table, pool);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int bytes) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(bytes);
+        buffer.position(buffer.position() + bytes);
+        return slice;
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, IntBuffer ints) throws IOException {
+        while (ints.hasRemaining()) {
+            ensureRemaining(channel, buffer, 4);
+            IntBuffer view = buffer.asIntBuffer();
+            int count = Math.min(view.remaining(), ints.remaining());
+            view.put(ints.slice().limit(count));
+            ints.position(ints.position() + count);
+            buffer.position(buffer.position() + count * 4);
+        }
+    }
+
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
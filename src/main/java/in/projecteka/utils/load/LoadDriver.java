@@ -0,0 +1,182 @@
+package in.projecteka.utils.load;
+
+import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.common.BundleGenerator;
+import in.projecteka.utils.common.FhirRuntime;
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.common.Utils;
+import in.projecteka.utils.metrics.LatencyHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays generated coverage eligibility request bundles against an http endpoint at the rate of a
+ * {@link LoadProfile}.
+ * <p>
+ * Requests are sent at their scheduled time whether or not earlier ones were answered. Response times are
+ * measured from the scheduled time, so a stalled target shows up in the percentiles instead of just slowing
+ * down the test (coordinated omission). The service time is measured from when the request was actually sent.
+ * At most maxInFlight requests are outstanding; requests due beyond that are dropped and counted.
+ */
+public class LoadDriver {
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final URI target;
+    private final LoadProfile profile;
+    private final List<byte[]> payloads;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    private final LatencyHistogram responseTimes = new LatencyHistogram();
+    private final LatencyHistogram serviceTimes = new LatencyHistogram();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    public LoadDriver(URI target, LoadProfile profile, List<byte[]> payloads, int maxInFlight, Duration timeout) {
+        if (payloads.isEmpty()) {
+            throw new RuntimeException("No payloads to send");
+        }
+        this.target = target;
+        this.profile = profile;
+        this.payloads = payloads;
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * Generates the bundles to replay, json encoded, one per index of the request.
+     */
+    public static List<byte[]> createPayloads(BundleGenerator generator, DocRequest request) throws Exception {
+        byte[][] payloads = new byte[request.getNumber()][];
+        GenerationEngine.run(request.getNumber(), request.getParallelism(), "payloads", i ->
+                payloads[i] = FhirRuntime.jsonParser()
+                        .encodeResourceToString(generator.createBundle(request, Utils.getNextDate(request.getFromDate(), i)))
+                        .getBytes(StandardCharsets.UTF_8));
+        return Arrays.asList(payloads);
+    }
+
+    public void run() throws InterruptedException {
+        System.out.println(String.format("Sending %d distinct payloads to %s, %s", payloads.size(), target, profile));
+        long durationNanos = (long) (profile.getDurationSeconds() * 1e9);
+        long start = System.nanoTime();
+        long nextProgress = start + PROGRESS_INTERVAL_NANOS;
+        long sent = 0;
+        long dropped = 0;
+        double offsetSeconds = 0;
+        while (offsetSeconds * 1e9 < durationNanos) {
+            long scheduled = start + (long) (offsetSeconds * 1e9);
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.get() >= maxInFlight) {
+                dropped++;
+            } else {
+                send(payloads.get((int) (sent % payloads.size())), scheduled);
+                sent++;
+            }
+            if (scheduled >= nextProgress) {
+                printProgress(scheduled - start, sent, dropped);
+                nextProgress += PROGRESS_INTERVAL_NANOS;
+            }
+            offsetSeconds += 1 / profile.rateAt(offsetSeconds);
+        }
+        long sendingNanos = System.nanoTime() - start;
+        awaitInFlight();
+        report(sent, dropped, sendingNanos);
+    }
+
+    private void send(byte[] payload, long scheduled) {
+        HttpRequest request = HttpRequest.newBuilder(target)
+                .timeout(timeout)
+                .header("Content-Type", "application/fhir+json")
+                .header("x-hcx-api_call_id", UUID.randomUUID().toString())
+                .header("x-hcx-correlation_id", UUID.randomUUID().toString())
+                .header("x-hcx-timestamp", Instant.now().toString())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                .build();
+        inFlight.incrementAndGet();
+        long sentAt = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            long now = System.nanoTime();
+            if (error != null) {
+                fail(error.getCause() != null ? error.getCause().getClass().getSimpleName() : error.getClass().getSimpleName());
+            } else if (response.statusCode() / 100 != 2) {
+                fail("http " + response.statusCode());
+            } else {
+                succeeded.increment();
+                responseTimes.recordNanos(now - scheduled);
+                serviceTimes.recordNanos(now - sentAt);
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    private void fail(String reason) {
+        failed.increment();
+        failures.computeIfAbsent(reason, key -> new LongAdder()).increment();
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void printProgress(long elapsedNanos, long sent, long dropped) {
+        System.out.println(String.format("%5.0f s: sent %d, ok %d, failed %d, dropped %d, in flight %d, p99 %.1f ms",
+                elapsedNanos / 1e9, sent, succeeded.sum(), failed.sum(), dropped, inFlight.get(),
+                responseTimes.percentile(99) / 1000.0));
+    }
+
+    private void report(long sent, long dropped, long sendingNanos) {
+        double seconds = sendingNanos / 1e9;
+        long attempted = sent + dropped;
+        long errors = failed.sum() + dropped;
+        System.out.println(String.format(
+                "Sent %d requests in %.2f s (%.1f requests/sec), %d ok, %d failed, %d dropped, %d unanswered",
+                sent, seconds, sent / seconds, succeeded.sum(), failed.sum(), dropped,
+                sent - succeeded.sum() - failed.sum()));
+        System.out.println(String.format("Throughput: %.1f ok/sec, error rate %.2f%%",
+                succeeded.sum() / seconds, attempted == 0 ? 0 : errors * 100.0 / attempted));
+        new TreeMap<>(failures).forEach((reason, count) ->
+                System.out.println(String.format("  %s: %d", reason, count.sum())));
+        printLatencies("Response time", responseTimes);
+        printLatencies("Service time ", serviceTimes);
+    }
+
+    private static void printLatencies(String label, LatencyHistogram histogram) {
+        StringBuilder line = new StringBuilder(String.format("%s (ms):", label));
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(" p%s %.2f", percentile == Math.rint(percentile) ? String.valueOf((int) percentile)
+                    : String.valueOf(percentile), histogram.percentile(percentile) / 1000.0));
+        }
+        line.append(String.format(" max %.2f mean %.2f", histogram.getMax() / 1000.0, histogram.getMean() / 1000.0));
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,81 @@
+package in.projecteka.utils.load;
+
+import lombok.Getter;
+
+/**
+ * Target request rate over the course of a load test. The rate only depends on the elapsed time, never on
+ * how fast the target answers (open loop), so a slow target builds up requests in flight instead of
+ * silently lowering the load.
+ */
+@Getter
+public class LoadProfile {
+    private final String name;
+    private final double durationSeconds;
+    private final double rate;
+    private final double rampTo;
+    private final double burstRate;
+    private final double burstEverySeconds;
+    private final double burstLengthSeconds;
+
+    private LoadProfile(String name, double durationSeconds, double rate, double rampTo,
+                        double burstRate, double burstEverySeconds, double burstLengthSeconds) {
+        if (durationSeconds <= 0 || rate <= 0 || rampTo <= 0 || burstRate <= 0) {
+            throw new RuntimeException("Load test duration and rates must be positive");
+        }
+        if (burstEverySeconds <= 0 || burstLengthSeconds < 0 || burstLengthSeconds > burstEverySeconds) {
+            throw new RuntimeException("Bursts must be shorter than the interval between them");
+        }
+        this.name = name;
+        this.durationSeconds = durationSeconds;
+        this.rate = rate;
+        this.rampTo = rampTo;
+        this.burstRate = burstRate;
+        this.burstEverySeconds = burstEverySeconds;
+        this.burstLengthSeconds = burstLengthSeconds;
+    }
+
+    /**
+     * The same rate (requests/sec) throughout.
+     */
+    public static LoadProfile constant(double rate, double durationSeconds) {
+        return new LoadProfile("constant", durationSeconds, rate, rate, rate, 1, 0);
+    }
+
+    /**
+     * Rate rising (or falling) linearly from rate to rampTo over the duration.
+     */
+    public static LoadProfile ramp(double rate, double rampTo, double durationSeconds) {
+        return new LoadProfile("ramp", durationSeconds, rate, rampTo, rate, 1, 0);
+    }
+
+    /**
+     * The base rate, with burstRate for the first burstLength seconds of every burstEvery seconds.
+     */
+    public static LoadProfile burst(double rate, double burstRate, double burstEverySeconds, double burstLengthSeconds,
+                                    double durationSeconds) {
+        return new LoadProfile("burst", durationSeconds, rate, rate, burstRate, burstEverySeconds, burstLengthSeconds);
+    }
+
+    /**
+     * @return requests/sec at the given number of seconds into the test
+     */
+    public double rateAt(double seconds) {
+        if (seconds % burstEverySeconds < burstLengthSeconds) {
+            return burstRate;
+        }
+        return rate + (rampTo - rate) * Math.min(1, seconds / durationSeconds);
+    }
+
+    @Override
+    public String toString() {
+        switch (name) {
+            case "ramp":
+                return String.format("ramp from %.1f to %.1f/sec over %.0f s", rate, rampTo, durationSeconds);
+            case "burst":
+                return String.format("%.1f/sec with bursts of %.1f/sec for %.1f s every %.1f s, over %.0f s",
+                        rate, burstRate, burstLengthSeconds, burstEverySeconds, durationSeconds);
+            default:
+                return String.format("constant %.1f/sec over %.0f s", rate, durationSeconds);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package in.projecteka.utils.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stand-in for an HCX gateway, to load test without a network or a sandbox account:
+ * <pre>
+ * POST /coverageeligibility/check
+ * </pre>
+ * Every request is acknowledged the way the gateway does (202 with the api call and correlation ids), after a
+ * simulated processing time of 0.5 to 1.5 times the given latency. The given share of requests fails with a 500.
+ */
+public class MockHcxGateway {
+    static final String CHECK_PATH = "/coverageeligibility/check";
+    private static final int WORKERS = 256;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final double errorRate;
+    private final LongAdder received = new LongAdder();
+
+    public MockHcxGateway(int port, long latencyMillis, double errorRate) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        //simulated latency blocks a worker, like a gateway waiting on its backends
+        this.executor = Executors.newFixedThreadPool(WORKERS);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), WORKERS);
+        this.server.createContext(CHECK_PATH, this::check);
+        this.server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println(String.format("Mock HCX gateway listening on %s (latency %d ms, error rate %.1f%%)",
+                getUrl(), latencyMillis, errorRate * 100));
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public String getUrl() {
+        return String.format("http://localhost:%d%s", server.getAddress().getPort(), CHECK_PATH);
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    private void check(HttpExchange exchange) throws IOException {
+        try {
+            received.increment();
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                respond(exchange, 405, error("ERR_INVALID_REQUEST", "Use POST"));
+                return;
+            }
+            long size = drain(exchange.getRequestBody());
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (latencyMillis > 0) {
+                Thread.sleep((long) (latencyMillis * (0.5 + random.nextDouble())));
+            }
+            if (size == 0) {
+                respond(exchange, 400, error("ERR_INVALID_PAYLOAD", "Empty payload"));
+            } else if (random.nextDouble() < errorRate) {
+                respond(exchange, 500, error("ERR_SERVICE_UNAVAILABLE", "Simulated gateway failure"));
+            } else {
+                respond(exchange, 202, String.format(
+                        "{\"timestamp\":\"%s\",\"api_call_id\":\"%s\",\"correlation_id\":\"%s\"}",
+                        Instant.now(),
+                        headerOrRandom(exchange, "x-hcx-api_call_id"),
+                        headerOrRandom(exchange, "x-hcx-correlation_id")));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static long drain(InputStream body) throws IOException {
+        byte[] buffer = new byte[8192];
+        long size = 0;
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            size += read;
+        }
+        return size;
+    }
+
+    private static String headerOrRandom(HttpExchange exchange, String header) {
+        String value = exchange.getRequestHeaders().getFirst(header);
+        return value != null ? value : UUID.randomUUID().toString();
+    }
+
+    private static String error(String code, String message) {
+        return String.format("{\"timestamp\":\"%s\",\"error\":{\"code\":\"%s\",\"message\":\"%s\"}}",
+                Instant.now(), code, message);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package in.projecteka.utils.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("in.projecteka.utils.BundleBuild")
+@Label("Bundle Build")
+@Category({"HCX Utils", "Generation"})
+@Description("A document bundle built by a generator")
+public class BundleBuildEvent extends jdk.jfr.Event {
+    @Label("Generator")
+    String generator;
+
+    @Label("Document Type")
+    String documentType;
+
+    @Label("Resources")
+    int resources;
+}
@@ -0,0 +1,59 @@
+package in.projecteka.utils.metrics;
+
+import org.hl7.fhir.r4.model.Bundle;
+
+/**
+ * Build metrics and flight recorder events of a generator, labelled with the generator's class name.
+ * Instances are resolved once per generator class, so building a bundle does not look up its metrics.
+ */
+public class BundleMetrics {
+    private static final ClassValue<BundleMetrics> GENERATORS = new ClassValue<>() {
+        @Override
+        protected BundleMetrics computeValue(Class<?> generator) {
+            return new BundleMetrics(generator.getSimpleName());
+        }
+    };
+
+    private final String generator;
+    private final Summary build;
+    private final Counter built;
+    private final Summary resources;
+
+    private BundleMetrics(String generator) {
+        this.generator = generator;
+        build = Metrics.timer(Metrics.BUNDLE_BUILD, "generator", generator);
+        built = Metrics.counter(Metrics.BUNDLES_BUILT, "generator", generator);
+        resources = Metrics.summary(Metrics.BUNDLE_RESOURCES, "generator", generator);
+    }
+
+    public static BundleMetrics of(Class<?> generator) {
+        return GENERATORS.get(generator);
+    }
+
+    public interface BundleBuild {
+        Bundle build() throws Exception;
+    }
+
+    /**
+     * Builds a bundle, recording the build time and size in the generator's metrics and as a flight recorder event.
+     */
+    public Bundle build(String documentType, BundleBuild bundleBuild) throws Exception {
+        BundleBuildEvent event = new BundleBuildEvent();
+        event.begin();
+        long started = System.nanoTime();
+        Bundle bundle = bundleBuild.build();
+        long nanos = System.nanoTime() - started;
+        event.end();
+        int entries = bundle.getEntry().size();
+        build.recordNanos(nanos);
+        built.increment();
+        resources.record(entries);
+        if (event.shouldCommit()) {
+            event.generator = generator;
+            event.documentType = documentType;
+            event.resources = entries;
+            event.commit();
+        }
+        return bundle;
+    }
+}
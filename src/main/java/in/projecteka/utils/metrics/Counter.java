@@ -0,0 +1,28 @@
+package in.projecteka.utils.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter extends Metric {
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name, String help, String label, String labelValue) {
+        super(name, help, label, labelValue);
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    String getType() {
+        return "counter";
+    }
+}
@@ -0,0 +1,26 @@
+package in.projecteka.utils.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("in.projecteka.utils.DocumentEncode")
+@Label("Document Encode")
+@Category({"HCX Utils", "Output"})
+@Description("A document encoded as json")
+public class DocumentEncodeEvent extends jdk.jfr.Event {
+    @Label("Sink")
+    String sink;
+
+    @Label("Document")
+    String document;
+
+    @Label("Resource Type")
+    String resourceType;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,29 @@
+package in.projecteka.utils.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("in.projecteka.utils.DocumentWrite")
+@Label("Document Write")
+@Category({"HCX Utils", "Output"})
+@Description("A document written by a sink, including encoding for sinks that encode while writing")
+public class DocumentWriteEvent extends jdk.jfr.Event {
+    @Label("Sink")
+    String sink;
+
+    @Label("Document")
+    String document;
+
+    @Label("Location")
+    String location;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    //not recorded, start of the write for the metrics
+    transient long started;
+}
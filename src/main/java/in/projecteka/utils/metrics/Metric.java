@@ -0,0 +1,26 @@
+package in.projecteka.utils.metrics;
+
+import lombok.Getter;
+
+/**
+ * A named metric with a single label, e.g. hcx_bundle_build_seconds{generator="PrescriptionGenerator"}.
+ */
+@Getter
+public abstract class Metric {
+    private final String name;
+    private final String help;
+    private final String label;
+    private final String labelValue;
+
+    Metric(String name, String help, String label, String labelValue) {
+        this.name = name;
+        this.help = help;
+        this.label = label;
+        this.labelValue = labelValue;
+    }
+
+    /**
+     * @return prometheus type of the metric
+     */
+    abstract String getType();
+}
@@ -0,0 +1,56 @@
+package in.projecteka.utils.metrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Process wide registry of the generation metrics. Metrics are created on first use and kept for the
+ * lifetime of the process; callers on hot paths should hold on to the returned instances.
+ */
+public class Metrics {
+    public static final String BUNDLE_BUILD = "hcx_bundle_build_seconds";
+    public static final String BUNDLES_BUILT = "hcx_bundles_built_total";
+    public static final String BUNDLE_RESOURCES = "hcx_bundle_resources";
+    public static final String DOCUMENT_ENCODE = "hcx_document_encode_seconds";
+    public static final String DOCUMENT_WRITE = "hcx_document_write_seconds";
+    public static final String DOCUMENTS_WRITTEN = "hcx_documents_written_total";
+    public static final String BYTES_WRITTEN = "hcx_bytes_written_total";
+    public static final String BINARY_ATTACHMENTS = "hcx_binary_attachments_total";
+
+    private static final Map<String, String> HELP = Map.of(
+            BUNDLE_BUILD, "Time to build a bundle",
+            BUNDLES_BUILT, "Bundles built",
+            BUNDLE_RESOURCES, "Resources per bundle",
+            DOCUMENT_ENCODE, "Time to json encode a document",
+            DOCUMENT_WRITE, "Time to write a document, including encoding for sinks that encode while writing",
+            DOCUMENTS_WRITTEN, "Documents written",
+            BYTES_WRITTEN, "Bytes of json written, before compression",
+            BINARY_ATTACHMENTS, "Binary resources included in bundles");
+
+    //sorted by name and label, the order metrics are exported in
+    private static final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    public static Counter counter(String name, String label, String labelValue) {
+        return (Counter) metrics.computeIfAbsent(key(name, labelValue),
+                key -> new Counter(name, HELP.getOrDefault(name, name), label, labelValue));
+    }
+
+    public static Summary timer(String name, String label, String labelValue) {
+        return (Summary) metrics.computeIfAbsent(key(name, labelValue),
+                key -> new Summary(name, HELP.getOrDefault(name, name), label, labelValue, true));
+    }
+
+    public static Summary summary(String name, String label, String labelValue) {
+        return (Summary) metrics.computeIfAbsent(key(name, labelValue),
+                key -> new Summary(name, HELP.getOrDefault(name, name), label, labelValue, false));
+    }
+
+    static Collection<Metric> all() {
+        return metrics.values();
+    }
+
+    private static String key(String name, String labelValue) {
+        return name + '|' + labelValue;
+    }
+}
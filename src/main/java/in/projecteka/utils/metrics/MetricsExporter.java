@@ -0,0 +1,124 @@
+package in.projecteka.utils.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes all {@link Metrics} as metrics.prom (Prometheus text format, e.g. for the node exporter's textfile
+ * collector) and metrics.json into a directory, every interval and once more when stopped. Files are replaced
+ * atomically, so readers never see a partial export.
+ */
+public class MetricsExporter {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Path directory;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "metrics-exporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MetricsExporter(Path directory) {
+        this.directory = directory;
+    }
+
+    public void start(long intervalSeconds) throws IOException {
+        Files.createDirectories(directory);
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                export();
+            } catch (IOException e) {
+                System.out.println("Failed to export metrics: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stop() throws IOException {
+        scheduler.shutdownNow();
+        export();
+        System.out.println("Wrote metrics to directory:" + directory);
+    }
+
+    public synchronized void export() throws IOException {
+        write("metrics.prom", prometheus());
+        write("metrics.json", json());
+    }
+
+    private void write(String fileName, String content) throws IOException {
+        Path path = directory.resolve(fileName);
+        Path temp = directory.resolve(fileName + ".tmp");
+        Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static String prometheus() {
+        StringBuilder text = new StringBuilder();
+        String previous = null;
+        for (Metric metric : Metrics.all()) {
+            if (!metric.getName().equals(previous)) {
+                text.append("# HELP ").append(metric.getName()).append(' ').append(metric.getHelp()).append('\n');
+                text.append("# TYPE ").append(metric.getName()).append(' ').append(metric.getType()).append('\n');
+                previous = metric.getName();
+            }
+            String labels = String.format("%s=\"%s\"", metric.getLabel(), escape(metric.getLabelValue()));
+            if (metric instanceof Counter) {
+                line(text, metric.getName(), labels, ((Counter) metric).get());
+                continue;
+            }
+            Summary summary = (Summary) metric;
+            for (double quantile : QUANTILES) {
+                line(text, metric.getName(), labels + String.format(",quantile=\"%s\"", quantile), summary.quantile(quantile));
+            }
+            line(text, metric.getName() + "_sum", labels, summary.getSum());
+            line(text, metric.getName() + "_count", labels, summary.getCount());
+        }
+        return text.toString();
+    }
+
+    static String json() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"timestamp\":\"").append(Instant.now()).append("\",\"metrics\":[");
+        boolean first = true;
+        for (Metric metric : Metrics.all()) {
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            json.append(String.format("{\"name\":\"%s\",\"type\":\"%s\",\"labels\":{\"%s\":\"%s\"}",
+                    metric.getName(), metric.getType(), metric.getLabel(), escape(metric.getLabelValue())));
+            if (metric instanceof Counter) {
+                json.append(",\"value\":").append(((Counter) metric).get()).append('}');
+                continue;
+            }
+            Summary summary = (Summary) metric;
+            json.append(",\"count\":").append(summary.getCount())
+                    .append(",\"sum\":").append(number(summary.getSum()))
+                    .append(",\"max\":").append(number(summary.getMax()))
+                    .append(",\"quantiles\":{");
+            for (int i = 0; i < QUANTILES.length; i++) {
+                json.append(i == 0 ? "" : ",")
+                        .append('"').append(QUANTILES[i]).append("\":").append(number(summary.quantile(QUANTILES[i])));
+            }
+            json.append("}}");
+        }
+        return json.append("\n]}\n").toString();
+    }
+
+    private static void line(StringBuilder text, String name, String labels, double value) {
+        text.append(name).append('{').append(labels).append("} ").append(number(value)).append('\n');
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
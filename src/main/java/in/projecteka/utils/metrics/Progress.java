@@ -0,0 +1,41 @@
+package in.projecteka.utils.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prints how many documents were written so far, at most once every couple of seconds, instead of a line
+ * per document. Printing a line per document serialises the workers on the console at high rates.
+ */
+public class Progress {
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private static final LongAdder documents = new LongAdder();
+    private static final long start = System.nanoTime();
+    private static final AtomicLong nextReport = new AtomicLong(start + INTERVAL_NANOS);
+    private static volatile boolean enabled = true;
+
+    /**
+     * Whether progress is printed, on by default.
+     */
+    public static void setEnabled(boolean enabled) {
+        Progress.enabled = enabled;
+    }
+
+    public static void documentWritten(String location) {
+        documents.increment();
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        long next = nextReport.get();
+        //one worker wins the report for this interval, the others carry on
+        if (now >= next && nextReport.compareAndSet(next, now + INTERVAL_NANOS)) {
+            long written = documents.sum();
+            double seconds = (now - start) / 1e9;
+            System.out.println(String.format("Written %d documents (%.1f/sec), last: %s",
+                    written, seconds > 0 ? written / seconds : written, location));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package in.projecteka.utils.metrics;
+
+import in.projecteka.utils.common.ResourceEncoder;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.IOException;
+
+/**
+ * Encode and write metrics and flight recorder events of a sink, labelled with the kind of sink.
+ */
+public class SinkMetrics {
+    private final String sink;
+    private final Summary encode;
+    private final Summary write;
+    private final Counter documents;
+    private final Counter bytes;
+
+    public SinkMetrics(String sink) {
+        this.sink = sink;
+        encode = Metrics.timer(Metrics.DOCUMENT_ENCODE, "sink", sink);
+        write = Metrics.timer(Metrics.DOCUMENT_WRITE, "sink", sink);
+        documents = Metrics.counter(Metrics.DOCUMENTS_WRITTEN, "sink", sink);
+        bytes = Metrics.counter(Metrics.BYTES_WRITTEN, "sink", sink);
+    }
+
+    public byte[] encode(String name, IBaseResource resource) throws IOException {
+        DocumentEncodeEvent event = new DocumentEncodeEvent();
+        event.begin();
+        long started = System.nanoTime();
+        byte[] json = ResourceEncoder.encode(resource);
+        encode.recordNanos(System.nanoTime() - started);
+        event.end();
+        if (event.shouldCommit()) {
+            event.sink = sink;
+            event.document = name;
+            event.resourceType = resource.fhirType();
+            event.bytes = json.length;
+            event.commit();
+        }
+        return json;
+    }
+
+    /**
+     * @return the write in progress, to be passed to {@link #written} once the document is written
+     */
+    public DocumentWriteEvent startWrite() {
+        DocumentWriteEvent event = new DocumentWriteEvent();
+        event.begin();
+        event.started = System.nanoTime();
+        return event;
+    }
+
+    public void written(DocumentWriteEvent event, String name, String location, long size) {
+        write.recordNanos(System.nanoTime() - event.started);
+        documents.increment();
+        bytes.add(size);
+        event.end();
+        if (event.shouldCommit()) {
+            event.sink = sink;
+            event.document = name;
+            event.location = location;
+            event.bytes = size;
+            event.commit();
+        }
+        Progress.documentWritten(location);
+    }
+}
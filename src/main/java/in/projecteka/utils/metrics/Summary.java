@@ -0,0 +1,48 @@
+package in.projecteka.utils.metrics;
+
+/**
+ * Distribution of recorded values, exported with its count, sum and quantiles. Timers record nanoseconds
+ * (kept at microsecond precision) and are exported in seconds.
+ */
+public class Summary extends Metric {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final boolean timer;
+
+    Summary(String name, String help, String label, String labelValue, boolean timer) {
+        super(name, help, label, labelValue);
+        this.timer = timer;
+    }
+
+    public void recordNanos(long nanos) {
+        histogram.recordNanos(nanos);
+    }
+
+    public void record(long value) {
+        histogram.record(value);
+    }
+
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    public double getSum() {
+        return scale(histogram.getSum());
+    }
+
+    public double getMax() {
+        return scale(histogram.getMax());
+    }
+
+    public double quantile(double quantile) {
+        return scale(histogram.percentile(quantile * 100));
+    }
+
+    private double scale(long value) {
+        return timer ? value / 1_000_000.0 : value;
+    }
+
+    @Override
+    String getType() {
+        return "summary";
+    }
+}
@@ -0,0 +1,114 @@
+package in.projecteka.utils.output;
+
+import in.projecteka.utils.metrics.DocumentWriteEvent;
+import in.projecteka.utils.metrics.SinkMetrics;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes every document as an entry of an archive, into archives of roughly maxFileSize bytes named
+ * {prefix}-0001.{extension}, {prefix}-0002.{extension} ... Archives are written sequentially, so millions of
+ * documents end up in a few large files instead of as many small ones.
+ * <p>
+ * Documents are encoded on the calling worker; only appending the encoded bytes to the archive is serialised.
+ */
+abstract class ArchiveSink implements OutputSink {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final String prefix;
+    private final String extension;
+    private final long maxFileSize;
+    private final SinkMetrics metrics;
+    private int fileIndex = 0;
+    private Path path;
+    private CountingOutputStream out;
+
+    ArchiveSink(Path directory, String prefix, String extension, long maxFileSize) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.extension = extension;
+        this.maxFileSize = maxFileSize;
+        this.metrics = new SinkMetrics(extension);
+    }
+
+    /**
+     * Starts a new archive on top of the file stream.
+     */
+    abstract void open(OutputStream out) throws IOException;
+
+    /**
+     * @param size number of bytes in content
+     */
+    abstract void writeEntry(String name, InputStream content, long size) throws IOException;
+
+    /**
+     * Completes the current archive and closes the underlying file stream.
+     */
+    abstract void finish() throws IOException;
+
+    @Override
+    public void write(String name, IBaseResource resource) throws Exception {
+        writeEncoded(name, metrics.encode(name, resource));
+    }
+
+    @Override
+    public synchronized void writeEncoded(String name, byte[] json) throws Exception {
+        DocumentWriteEvent write = metrics.startWrite();
+        if (out == null || out.getCount() >= maxFileSize) {
+            roll();
+        }
+        writeEntry(name, new ByteArrayInputStream(json), json.length);
+        metrics.written(write, name, path.toString(), json.length);
+    }
+
+    @Override
+    public OutputStream openDocument(String name) throws IOException {
+        return SpooledDocument.open(directory, (spool, size) -> append(name, spool, size));
+    }
+
+    private synchronized void append(String name, Path spool, long size) throws IOException {
+        DocumentWriteEvent write = metrics.startWrite();
+        if (out == null || out.getCount() >= maxFileSize) {
+            roll();
+        }
+        try (InputStream content = Files.newInputStream(spool)) {
+            writeEntry(name, content, size);
+        }
+        metrics.written(write, name, path.toString(), size);
+    }
+
+    private void roll() throws IOException {
+        closeCurrent();
+        fileIndex++;
+        path = Paths.get(directory.toString(), String.format("%s-%04d.%s", prefix, fileIndex, extension));
+        System.out.println("Writing archive to file:" + path.toString());
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        out = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+        open(out);
+    }
+
+    private void closeCurrent() throws IOException {
+        if (out != null) {
+            finish();
+            out = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeCurrent();
+    }
+}
@@ -0,0 +1,33 @@
+package in.projecteka.utils.output;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes written through it, to roll output files over at a size. Writers and compressors on top of
+ * it buffer some bytes themselves, so files may exceed that size by a few KB.
+ */
+class CountingOutputStream extends FilterOutputStream {
+    private long count = 0;
+
+    CountingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        count += len;
+    }
+
+    long getCount() {
+        return count;
+    }
+}
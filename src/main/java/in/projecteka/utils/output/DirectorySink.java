@@ -0,0 +1,64 @@
+package in.projecteka.utils.output;
+
+import in.projecteka.utils.common.Utils;
+import in.projecteka.utils.metrics.DocumentWriteEvent;
+import in.projecteka.utils.metrics.SinkMetrics;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Writes every document as its own json file in the output directory.
+ */
+public class DirectorySink implements OutputSink {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final SinkMetrics metrics = new SinkMetrics(OutputSinks.FILES);
+
+    public DirectorySink(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void write(String name, IBaseResource resource) throws Exception {
+        DocumentWriteEvent write = metrics.startWrite();
+        Path path = Paths.get(directory.toString(), name);
+        metrics.written(write, name, path.toString(), Utils.saveToFile(path, resource));
+    }
+
+    @Override
+    public void writeEncoded(String name, byte[] json) throws Exception {
+        DocumentWriteEvent write = metrics.startWrite();
+        Path path = Paths.get(directory.toString(), name);
+        Files.write(path, json);
+        metrics.written(write, name, path.toString(), json.length);
+    }
+
+    @Override
+    public OutputStream openDocument(String name) throws IOException {
+        DocumentWriteEvent write = metrics.startWrite();
+        Path path = Paths.get(directory.toString(), name);
+        return new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE)) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                metrics.written(write, name, path.toString(), getCount());
+            }
+        };
+    }
+
+    @Override
+    public boolean writesFiles() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+}
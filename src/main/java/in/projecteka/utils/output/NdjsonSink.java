@@ -0,0 +1,91 @@
+package in.projecteka.utils.output;
+
+import in.projecteka.utils.metrics.DocumentWriteEvent;
+import in.projecteka.utils.metrics.SinkMetrics;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams documents as FHIR bulk data NDJSON, one resource per line, into files of roughly maxFileSize bytes
+ * named {prefix}-0001.ndjson, {prefix}-0002.ndjson ... Resources are encoded on the calling worker; only
+ * appending the line to the file is serialised.
+ */
+public class NdjsonSink implements OutputSink {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxFileSize;
+    private final SinkMetrics metrics = new SinkMetrics(OutputSinks.NDJSON);
+    private int fileIndex = 0;
+    private Path path;
+    private CountingOutputStream out;
+
+    public NdjsonSink(Path directory, String prefix, long maxFileSize) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxFileSize = maxFileSize;
+    }
+
+    @Override
+    public void write(String name, IBaseResource resource) throws Exception {
+        writeEncoded(name, metrics.encode(name, resource));
+    }
+
+    @Override
+    public synchronized void writeEncoded(String name, byte[] json) throws Exception {
+        DocumentWriteEvent write = metrics.startWrite();
+        if (out == null || out.getCount() >= maxFileSize) {
+            roll();
+        }
+        out.write(json);
+        out.write('\n');
+        metrics.written(write, name, path.toString(), json.length + 1);
+    }
+
+    @Override
+    public OutputStream openDocument(String name) throws IOException {
+        return SpooledDocument.open(directory, (spool, size) -> append(name, spool, size));
+    }
+
+    private synchronized void append(String name, Path spool, long size) throws IOException {
+        DocumentWriteEvent write = metrics.startWrite();
+        if (out == null || out.getCount() >= maxFileSize) {
+            roll();
+        }
+        Files.copy(spool, out);
+        out.write('\n');
+        metrics.written(write, name, path.toString(), size + 1);
+    }
+
+    private void roll() throws IOException {
+        closeCurrent();
+        fileIndex++;
+        path = Paths.get(directory.toString(), String.format("%s-%04d.ndjson", prefix, fileIndex));
+        System.out.println("Writing ndjson to file:" + path.toString());
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        out = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+    }
+
+    private void closeCurrent() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeCurrent();
+    }
+}
@@ -0,0 +1,100 @@
+package in.projecteka.utils.output;
+
+import in.projecteka.utils.common.GenerationEngine;
+import in.projecteka.utils.metrics.SinkMetrics;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes documents to a sink in the order of their index, rather than in the order workers finish them, so a
+ * seeded run gives the same ndjson, archives or stdout byte for byte irrespective of the number of workers.
+ * <p>
+ * Documents of the index next in line are written right away; documents of later indexes are encoded and held
+ * until every index before them is complete (see {@link GenerationEngine#setSequencer}). Documents written
+ * outside of a run, and streamed documents, are passed on as they come.
+ */
+public class OrderedSink implements OutputSink, GenerationEngine.Sequencer {
+    private final OutputSink target;
+    private final SinkMetrics metrics = new SinkMetrics("ordered");
+    private final Map<Integer, Pending> pending = new HashMap<>();
+    private int next = 0;
+
+    public OrderedSink(OutputSink target) {
+        this.target = target;
+    }
+
+    @Override
+    public void write(String name, IBaseResource resource) throws Exception {
+        writeEncoded(name, metrics.encode(name, resource));
+    }
+
+    @Override
+    public void writeEncoded(String name, byte[] json) throws Exception {
+        int index = GenerationEngine.currentIndex();
+        synchronized (this) {
+            if (index < 0 || index == next) {
+                target.writeEncoded(name, json);
+                return;
+            }
+            pending.computeIfAbsent(index, i -> new Pending()).documents.add(new Document(name, json));
+        }
+    }
+
+    @Override
+    public OutputStream openDocument(String name) throws Exception {
+        return target.openDocument(name);
+    }
+
+    @Override
+    public boolean writesFiles() {
+        return target.writesFiles();
+    }
+
+    @Override
+    public synchronized void begin() {
+        pending.clear();
+        next = 0;
+    }
+
+    @Override
+    public synchronized void completed(int index) throws Exception {
+        pending.computeIfAbsent(index, i -> new Pending()).completed = true;
+        //write out everything that is in line now; the documents of the new head that are already there first
+        Pending head;
+        while ((head = pending.remove(next)) != null) {
+            for (Document document : head.documents) {
+                target.writeEncoded(document.name, document.json);
+            }
+            if (!head.completed) {
+                break;
+            }
+            next++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        target.close();
+    }
+
+    private static class Pending {
+        private final List<Document> documents = new ArrayList<>();
+        private boolean completed = false;
+    }
+
+    private static class Document {
+        private final String name;
+        private final byte[] json;
+
+        Document(String name, byte[] json) {
+            this.name = name;
+            this.json = json;
+        }
+    }
+}
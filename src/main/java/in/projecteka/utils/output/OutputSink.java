@@ -0,0 +1,36 @@
+package in.projecteka.utils.output;
+
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+
+/**
+ * Destination of generated documents. Implementations must be safe to call from multiple generator workers.
+ */
+public interface OutputSink extends Closeable {
+    /**
+     * @param name     name of the document, e.g. MAXRVH1002PrescriptionDoc20200301.json
+     * @param resource bundle (or any other resource) to be written
+     */
+    void write(String name, IBaseResource resource) throws Exception;
+
+    /**
+     * Writes a document that was already encoded as json, e.g. by another stage of a {@link PipelinedSink}.
+     */
+    void writeEncoded(String name, byte[] json) throws Exception;
+
+    /**
+     * Opens a json document to be written piece by piece, for documents too large to be held in memory.
+     * The document is complete once the stream is closed.
+     */
+    OutputStream openDocument(String name) throws Exception;
+
+    /**
+     * Whether every document ends up as its own file in the output directory, under its name, so a later run can
+     * find it there again.
+     */
+    default boolean writesFiles() {
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package in.projecteka.utils.output;
+
+import java.nio.file.Path;
+import java.util.Date;
+
+public class OutputSinks {
+    public static final String FILES = "files";
+    public static final String NDJSON = "ndjson";
+    public static final String ZIP = "zip";
+    public static final String TAR_GZ = "tar.gz";
+    public static final String STDOUT = "stdout";
+
+    /**
+     * @param compression deflate level of zip and tar.gz archives, 0-9 or -1 for the default
+     * @param modified    modification time of the entries of zip and tar.gz archives, fixed so that archives of the
+     *                    same documents are the same
+     */
+    public static OutputSink create(String output, Path outPath, String type, long maxFileSize, int compression,
+                                    Date modified) {
+        switch (output.toLowerCase()) {
+            case FILES:
+                return new DirectorySink(outPath);
+            case NDJSON:
+                return new NdjsonSink(outPath, type, maxFileSize);
+            case ZIP:
+                return new ZipSink(outPath, type, maxFileSize, compression, modified);
+            case TAR_GZ:
+                return new TarGzSink(outPath, type, maxFileSize, compression, modified);
+            case STDOUT:
+                return new StdoutSink();
+            default:
+                throw new RuntimeException(String.format("Unsupported output [%s], possible values: %s, %s, %s, %s, %s",
+                        output, FILES, NDJSON, ZIP, TAR_GZ, STDOUT));
+        }
+    }
+}
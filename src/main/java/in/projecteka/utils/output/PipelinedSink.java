@@ -0,0 +1,238 @@
+package in.projecteka.utils.output;
+
+import in.projecteka.utils.metrics.SinkMetrics;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Splits writing documents into stages running on their own threads, so generation, json encoding and I/O overlap:
+ * <pre>
+ * build (generator workers) -> [encode queue] -> encode workers -> [write queue] -> write workers -> target sink
+ * </pre>
+ * Queues are bounded, so a slow stage holds up the stages before it rather than buffering documents in memory.
+ * The depth of the queues and the throughput of every stage are printed every few seconds and at the end: the
+ * stage with the fullest input queue is the bottleneck.
+ * <p>
+ * Documents must not be modified once they are handed over, as they are encoded on another thread.
+ */
+public class PipelinedSink implements OutputSink {
+    private static final Document END = new Document(null, null, null);
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+    private static final int SAMPLES_PER_REPORT = 50;
+
+    private final OutputSink target;
+    private final SinkMetrics metrics = new SinkMetrics("pipeline");
+    private final Stage build;
+    private final Stage encode;
+    private final Stage write;
+    private final List<Thread> encoders = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pipeline-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long start = System.nanoTime();
+    private long samples = 0;
+
+    public PipelinedSink(OutputSink target, int encodeWorkers, int writeWorkers, int queueSize) {
+        this.target = target;
+        this.build = new Stage("build", 0, null);
+        this.encode = new Stage("encode", encodeWorkers, new ArrayBlockingQueue<>(queueSize));
+        this.write = new Stage("write", writeWorkers, new ArrayBlockingQueue<>(queueSize));
+        for (int i = 1; i <= encodeWorkers; i++) {
+            encoders.add(startWorker("pipeline-encode-" + i, encode, this::encode));
+        }
+        for (int i = 1; i <= writeWorkers; i++) {
+            writers.add(startWorker("pipeline-write-" + i, write, this::write));
+        }
+        monitor.scheduleAtFixedRate(this::sample, SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void write(String name, IBaseResource resource) throws Exception {
+        hand(encode, new Document(name, resource, null));
+    }
+
+    @Override
+    public void writeEncoded(String name, byte[] json) throws Exception {
+        hand(write, new Document(name, null, json));
+    }
+
+    /**
+     * Streamed documents are too large to be queued, so they go to the target sink directly.
+     */
+    @Override
+    public OutputStream openDocument(String name) throws Exception {
+        throwIfFailed();
+        return target.openDocument(name);
+    }
+
+    @Override
+    public boolean writesFiles() {
+        return target.writesFiles();
+    }
+
+    private void hand(Stage next, Document document) throws Exception {
+        throwIfFailed();
+        long started = System.nanoTime();
+        next.queue.put(document);
+        //time the generator workers were held up by the stages after them
+        build.busyNanos.add(System.nanoTime() - started);
+        build.items.increment();
+    }
+
+    private void encode(Document document) throws Exception {
+        write.queue.put(new Document(document.name, null, metrics.encode(document.name, document.resource)));
+    }
+
+    private void write(Document document) throws Exception {
+        target.writeEncoded(document.name, document.json);
+    }
+
+    private Thread startWorker(String name, Stage stage, DocumentTask task) {
+        Thread thread = new Thread(() -> {
+            try {
+                Document document;
+                while ((document = stage.queue.take()) != END) {
+                    if (failure.get() != null) {
+                        //keep draining, so nobody blocks on a full queue
+                        continue;
+                    }
+                    long started = System.nanoTime();
+                    try {
+                        task.process(document);
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    stage.busyNanos.add(System.nanoTime() - started);
+                    stage.items.increment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void throwIfFailed() throws Exception {
+        Exception e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    private synchronized void sample() {
+        encode.sample();
+        write.sample();
+        if (++samples % SAMPLES_PER_REPORT == 0) {
+            System.out.println(String.format("Pipeline after %.0f s: build %d, encode queue %d, encoded %d, write queue %d, written %d",
+                    (System.nanoTime() - start) / 1e9, build.items.sum(), encode.queue.size(), encode.items.sum(),
+                    write.queue.size(), write.items.sum()));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish(encode, encoders);
+            finish(write, writers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            monitor.shutdownNow();
+            target.close();
+        }
+        report();
+        Exception e = failure.get();
+        if (e != null) {
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    private static void finish(Stage stage, List<Thread> workers) throws InterruptedException {
+        for (int i = 0; i < workers.size(); i++) {
+            stage.queue.put(END);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private synchronized void report() {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("Pipeline stages over %.2f s:", seconds));
+        System.out.println(String.format("  %-6s %8d documents %9.1f/sec, held up %.1f s by later stages",
+                build.name, build.items.sum(), build.items.sum() / seconds, build.busyNanos.sum() / 1e9));
+        Stage bottleneck = encode.averageDepth() >= write.averageDepth() ? encode : write;
+        for (Stage stage : new Stage[]{encode, write}) {
+            System.out.println(String.format(
+                    "  %-6s %8d documents %9.1f/sec, %d worker(s) %5.1f%% busy, input queue avg %.1f max %d of %d%s",
+                    stage.name, stage.items.sum(), stage.items.sum() / seconds, stage.workers,
+                    stage.busyNanos.sum() / 1e9 / seconds / stage.workers * 100,
+                    stage.averageDepth(), stage.maxDepth, stage.capacity,
+                    stage == bottleneck && stage.averageDepth() > 0 ? "  <- bottleneck" : ""));
+        }
+    }
+
+    private interface DocumentTask {
+        void process(Document document) throws Exception;
+    }
+
+    private static class Document {
+        private final String name;
+        private final IBaseResource resource;
+        private final byte[] json;
+
+        Document(String name, IBaseResource resource, byte[] json) {
+            this.name = name;
+            this.resource = resource;
+            this.json = json;
+        }
+    }
+
+    private static class Stage {
+        private final String name;
+        private final int workers;
+        private final BlockingQueue<Document> queue;
+        private final int capacity;
+        private final LongAdder items = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private long depthSum = 0;
+        private long depthSamples = 0;
+        private int maxDepth = 0;
+
+        Stage(String name, int workers, BlockingQueue<Document> queue) {
+            this.name = name;
+            this.workers = workers;
+            this.queue = queue;
+            this.capacity = queue == null ? 0 : queue.remainingCapacity();
+        }
+
+        void sample() {
+            int depth = queue.size();
+            depthSum += depth;
+            depthSamples++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        double averageDepth() {
+            return depthSamples == 0 ? 0 : (double) depthSum / depthSamples;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package in.projecteka.utils.output;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A document written piece by piece for a sink that appends documents to a single stream. Other workers keep
+ * writing to that stream meanwhile, so the document is spooled to a temporary file and only handed to the sink,
+ * in one go, once it is closed. Memory use does not depend on the size of the document.
+ */
+public class SpooledDocument extends FilterOutputStream {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path spool;
+    private final Appender appender;
+    private long size = 0;
+    private boolean closed = false;
+
+    private SpooledDocument(Path spool, Appender appender) throws IOException {
+        super(new BufferedOutputStream(Files.newOutputStream(spool), BUFFER_SIZE));
+        this.spool = spool;
+        this.appender = appender;
+    }
+
+    /**
+     * @param directory where to spool the document, the default temporary directory if null
+     * @param appender  appends the complete document to the sink
+     */
+    public static SpooledDocument open(Path directory, Appender appender) throws IOException {
+        Path spool = directory == null
+                ? Files.createTempFile("document", ".spool")
+                : Files.createTempFile(directory, ".document", ".spool");
+        return new SpooledDocument(spool, appender);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        size += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+            appender.append(spool, size);
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    public interface Appender {
+        /**
+         * @param spool file with the complete document
+         * @param size  its size in bytes
+         */
+        void append(Path spool, long size) throws IOException;
+    }
+}
@@ -0,0 +1,55 @@
+package in.projecteka.utils.output;
+
+import in.projecteka.utils.metrics.DocumentWriteEvent;
+import in.projecteka.utils.metrics.SinkMetrics;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams documents to the standard output as NDJSON, one resource per line, to pipe them into other tools.
+ * Writes to the process' stdout directly, so System.out (and the messages printed on it) can be redirected
+ * to stderr meanwhile. Resources are encoded on the calling worker; only appending the line is serialised.
+ */
+public class StdoutSink implements OutputSink {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BUFFER_SIZE);
+    private final SinkMetrics metrics = new SinkMetrics(OutputSinks.STDOUT);
+
+    @Override
+    public void write(String name, IBaseResource resource) throws Exception {
+        writeEncoded(name, metrics.encode(name, resource));
+    }
+
+    @Override
+    public synchronized void writeEncoded(String name, byte[] json) throws Exception {
+        DocumentWriteEvent write = metrics.startWrite();
+        out.write(json);
+        out.write('\n');
+        metrics.written(write, name, "stdout", json.length + 1);
+    }
+
+    @Override
+    public OutputStream openDocument(String name) throws IOException {
+        return SpooledDocument.open(null, (spool, size) -> append(name, spool, size));
+    }
+
+    private synchronized void append(String name, Path spool, long size) throws IOException {
+        DocumentWriteEvent write = metrics.startWrite();
+        Files.copy(spool, out);
+        out.write('\n');
+        metrics.written(write, name, "stdout", size + 1);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.flush();
+    }
+}
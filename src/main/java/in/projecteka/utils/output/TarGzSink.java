@@ -0,0 +1,105 @@
+package in.projecteka.utils.output;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes documents as entries of gzip compressed (ustar) tar archives, compressed with the given level
+ * (0-9, or -1 for the default).
+ */
+public class TarGzSink extends ArchiveSink {
+    private static final int BLOCK_SIZE = 512;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_NAME_LENGTH = 100;
+
+    private final int level;
+    private final byte[] header = new byte[BLOCK_SIZE];
+    //seconds since the epoch
+    private final long modified;
+    private OutputStream tar;
+
+    /**
+     * @param modified modification time of every entry
+     */
+    public TarGzSink(Path directory, String prefix, long maxFileSize, int level, Date modified) {
+        super(directory, prefix, "tar.gz", maxFileSize);
+        this.level = level;
+        this.modified = modified.getTime() / 1000;
+    }
+
+    @Override
+    void open(OutputStream out) throws IOException {
+        tar = new GZIPOutputStream(out, GZIP_BUFFER_SIZE) {{
+            def.setLevel(level);
+        }};
+    }
+
+    @Override
+    void writeEntry(String name, InputStream content, long size) throws IOException {
+        writeHeader(name, size);
+        if (content.transferTo(tar) != size) {
+            throw new IOException("Size of tar entry changed while writing it: " + name);
+        }
+        int padding = (int) ((BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+        tar.write(new byte[padding]);
+    }
+
+    @Override
+    void finish() throws IOException {
+        //end of archive: two empty blocks
+        tar.write(new byte[2 * BLOCK_SIZE]);
+        tar.close();
+        tar = null;
+    }
+
+    private void writeHeader(String name, long size) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > MAX_NAME_LENGTH) {
+            throw new RuntimeException("Document name too long for a tar entry: " + name);
+        }
+        Arrays.fill(header, (byte) 0);
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        octal(0644, 100, 8);
+        octal(0, 108, 8);
+        octal(0, 116, 8);
+        octal(size, 124, 12);
+        octal(modified, 136, 12);
+        header[156] = '0';
+        ascii("ustar", 257);
+        ascii("00", 263);
+        //the checksum is computed with its own field set to spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        octal(checksum, 148, 7);
+        header[155] = ' ';
+        tar.write(header);
+    }
+
+    /**
+     * Zero padded octal number, terminated by a NUL in the last byte of the field.
+     */
+    private void octal(long value, int offset, int length) {
+        String digits = Long.toOctalString(value);
+        if (digits.length() > length - 1) {
+            throw new RuntimeException("Value too large for a tar header field: " + value);
+        }
+        int start = offset + length - 1 - digits.length();
+        Arrays.fill(header, offset, start, (byte) '0');
+        ascii(digits, start);
+        header[offset + length - 1] = 0;
+    }
+
+    private void ascii(String value, int offset) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
@@ -0,0 +1,52 @@
+package in.projecteka.utils.output;
+
+import in.projecteka.utils.common.Dates;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes documents as entries of zip archives, deflated with the given level (0-9, or -1 for the default).
+ */
+public class ZipSink extends ArchiveSink {
+    private final int level;
+    private final LocalDateTime modified;
+    private ZipOutputStream zip;
+
+    /**
+     * @param modified modification time of every entry
+     */
+    public ZipSink(Path directory, String prefix, long maxFileSize, int level, Date modified) {
+        super(directory, prefix, "zip", maxFileSize);
+        this.level = level;
+        //zip times are local; set as such, they do not depend on the time zone of the machine
+        this.modified = LocalDateTime.ofInstant(modified.toInstant(), Dates.getZone());
+    }
+
+    @Override
+    void open(OutputStream out) {
+        zip = new ZipOutputStream(out);
+        zip.setLevel(level);
+    }
+
+    @Override
+    void writeEntry(String name, InputStream content, long size) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTimeLocal(modified);
+        zip.putNextEntry(entry);
+        content.transferTo(zip);
+        zip.closeEntry();
+    }
+
+    @Override
+    void finish() throws IOException {
+        zip.close();
+        zip = null;
+    }
+}
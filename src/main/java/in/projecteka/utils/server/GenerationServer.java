@@ -0,0 +1,250 @@
+package in.projecteka.utils.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import in.projecteka.utils.DocRequest;
+import in.projecteka.utils.common.Dates;
+import in.projecteka.utils.common.DocumentGenerator;
+import in.projecteka.utils.common.OrganizationRegistry;
+import in.projecteka.utils.common.ReferenceCatalogs;
+import in.projecteka.utils.metrics.DocumentWriteEvent;
+import in.projecteka.utils.metrics.SinkMetrics;
+import in.projecteka.utils.output.OutputSink;
+import in.projecteka.utils.output.SpooledDocument;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the generators warm and serves documents over http:
+ * <pre>
+ * POST /generate/{type}?number=100&name=hina&hip=max&fromDate=2020-03-01&id=RVH1003
+ * GET  /health
+ * </pre>
+ * Documents are streamed as NDJSON, each bundle written to the response as soon as it is built. They are counted
+ * in the document metrics of the {@value SINK} sink, like the documents of the command line sinks.
+ * <p>
+ * Requests are validated on the accepting thread and generated on a fixed pool of workers with a bounded queue.
+ * Once the queue is full, further requests are rejected with 503 and a Retry-After header rather than piling up
+ * in memory, and the accepting thread stays free for new connections and health checks. Slow readers in turn
+ * block their worker on the response stream.
+ */
+public class GenerationServer {
+    private static final String NDJSON_CONTENT_TYPE = "application/fhir+ndjson";
+    private static final String SINK = "server";
+    private static final int MAX_NUMBER = 100_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int RETRY_AFTER_SECONDS = 1;
+
+    private final Map<String, DocumentGenerator> generators;
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+
+    public GenerationServer(Map<String, DocumentGenerator> generators, int port, int workers, int queueSize) throws IOException {
+        this.generators = generators;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new ThreadPoolExecutor.AbortPolicy());
+        this.server = HttpServer.create(new InetSocketAddress(port), queueSize);
+        this.server.createContext("/generate/", this::generate);
+        this.server.createContext("/health", exchange -> respond(exchange, 200, "UP"));
+        //handlers run on the accepting thread, they only validate requests and hand them to the workers
+        this.server.setExecutor(null);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println(String.format("Generation server listening on port %d with %d worker(s)",
+                server.getAddress().getPort(), executor.getMaximumPoolSize()));
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void generate(HttpExchange exchange) throws IOException {
+        boolean handedOver = false;
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Use POST");
+                return;
+            }
+            String type = exchange.getRequestURI().getPath().substring("/generate/".length()).toUpperCase();
+            DocumentGenerator generator = generators.get(type);
+            if (generator == null) {
+                respond(exchange, 404, "Unsupported type: " + type);
+                return;
+            }
+            DocRequest request;
+            try {
+                request = toRequest(type, queryParams(exchange.getRequestURI().getRawQuery()), exchange);
+            } catch (RuntimeException e) {
+                respond(exchange, 400, e.getMessage());
+                return;
+            }
+            try {
+                executor.execute(() -> generate(exchange, generator, request));
+                handedOver = true;
+            } catch (RejectedExecutionException e) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+                respond(exchange, 503, "All workers are busy, retry later");
+            }
+        } finally {
+            if (!handedOver) {
+                exchange.close();
+            }
+        }
+    }
+
+    private void generate(HttpExchange exchange, DocumentGenerator generator, DocRequest request) {
+        ExchangeSink sink = (ExchangeSink) request.getSink();
+        try {
+            generator.execute(request);
+            sink.close();
+        } catch (Exception e) {
+            if (sink.isStarted()) {
+                //too late for an error status, the client sees a truncated stream
+                System.out.println("Failed while streaming documents: " + e.getMessage());
+            } else {
+                //the request was valid, so this is a failure of the generator rather than of the client
+                System.out.println("Failed to generate documents: " + e);
+                try {
+                    respond(exchange, 500, "Failed to generate documents: " + e);
+                } catch (IOException ioException) {
+                    System.out.println("Failed to report the failure: " + ioException.getMessage());
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private DocRequest toRequest(String type, Map<String, String> params, HttpExchange exchange) {
+        int number = Integer.parseInt(params.getOrDefault("number", "1"));
+        if (number < 1 || number > MAX_NUMBER) {
+            throw new RuntimeException(String.format("number must be between 1 and %d", MAX_NUMBER));
+        }
+        //an unknown patient or hip is the client's mistake, not a failure of the generator
+        String name = params.getOrDefault("name", "navjot");
+        if (ReferenceCatalogs.patients().find(name) == null) {
+            throw new RuntimeException("Can not identify patient with name: " + name);
+        }
+        String hip = params.getOrDefault("hip", "max");
+        OrganizationRegistry.get(hip);
+        String fromDate = params.get("fromDate");
+        return DocRequest.builder()
+                .type(type)
+                .patientName(name)
+                .patientId(params.get("id"))
+                .provName(hip)
+                .fromDate(fromDate == null ? new Date() : Dates.parseDate(fromDate))
+                .number(number)
+                //concurrency comes from serving several requests at once
+                .parallelism(1)
+                .sink(new ExchangeSink(exchange))
+                .build();
+    }
+
+    private static Map<String, String> queryParams(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Streams resources into the response as NDJSON. Headers are only sent with the first document, so failures
+     * before that (e.g. an unknown patient) can still be reported with an error status.
+     */
+    private static class ExchangeSink implements OutputSink {
+        private final HttpExchange exchange;
+        private final SinkMetrics metrics = new SinkMetrics(SINK);
+        private OutputStream out;
+
+        ExchangeSink(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        boolean isStarted() {
+            return out != null;
+        }
+
+        @Override
+        public void write(String name, IBaseResource resource) throws Exception {
+            writeEncoded(name, metrics.encode(name, resource));
+        }
+
+        @Override
+        public synchronized void writeEncoded(String name, byte[] json) throws Exception {
+            start();
+            DocumentWriteEvent write = metrics.startWrite();
+            out.write(json);
+            out.write('\n');
+            metrics.written(write, name, location(), json.length + 1);
+        }
+
+        @Override
+        public OutputStream openDocument(String name) throws IOException {
+            return SpooledDocument.open(null, (spool, size) -> append(name, spool, size));
+        }
+
+        private synchronized void append(String name, Path spool, long size) throws IOException {
+            start();
+            DocumentWriteEvent write = metrics.startWrite();
+            Files.copy(spool, out);
+            out.write('\n');
+            metrics.written(write, name, location(), size + 1);
+        }
+
+        private void start() throws IOException {
+            if (out == null) {
+                exchange.getResponseHeaders().set("Content-Type", NDJSON_CONTENT_TYPE);
+                //chunked
+                exchange.sendResponseHeaders(200, 0);
+                out = new BufferedOutputStream(exchange.getResponseBody(), BUFFER_SIZE);
+            }
+        }
+
+        private String location() {
+            return String.valueOf(exchange.getRemoteAddress());
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+}